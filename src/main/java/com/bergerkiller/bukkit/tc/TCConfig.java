@@ -24,6 +24,7 @@ import com.bergerkiller.bukkit.common.utils.MaterialUtil;
 import com.bergerkiller.bukkit.common.utils.MathUtil;
 import com.bergerkiller.bukkit.common.utils.ParseUtil;
 import com.bergerkiller.bukkit.tc.attachments.animation.Animation;
+import com.bergerkiller.bukkit.tc.statements.Statement;
 
 /**
  * Stores all the settings specified in the TrainCarts config.yml.
@@ -57,6 +58,8 @@ public class TCConfig {
     public static boolean keepChunksLoadedOnlyWhenMoving;
     public static int maxDetectorLength;
     public static int maxMinecartStackSize;
+    public static int reducedTickRateInterval;
+    public static int reducedTickRateDistance;
     public static int defaultTransferRadius;
     public static int maxTransferRadius;
     public static boolean optimizeInteraction;
@@ -86,6 +89,8 @@ public class TCConfig {
     public static boolean animationsUseTickTime = false;
     public static boolean claimNewSavedTrains = true;
     public static boolean onlyPoweredEmptySwitchersDoPathfinding = false;
+    public static int pathFindingMaxProcessingPerTick = 30; // Maximum time in ms spent on path finding every tick
+    public static int railCacheVerifyInterval = 20; // Ticks after which cached rails are verified even when no blocks changed
     public static boolean enableSneakingInAttachmentEditor = false;
     public static boolean playHissWhenStopAtStation = true;
     public static boolean playHissWhenDestroyedBySign = true;
@@ -265,6 +270,14 @@ public class TCConfig {
         config.setHeader("maxMinecartStackSize", "\nThe maximum amount of minecart items that can be stacked in one item");
         maxMinecartStackSize = config.get("maxMinecartStackSize", 64);
 
+        config.setHeader("reducedTickRate", "\nTrains with no players nearby can be updated less often, moving multiple ticks at once");
+        config.addHeader("reducedTickRate", "This reduces the cost of physics on large automated networks");
+        config.addHeader("reducedTickRate", "Trains performing actions, like waiting at a station, or on signs are always updated every tick");
+        config.setHeader("reducedTickRate.interval", "Number of ticks in between updates of trains without players nearby (1 = disabled)");
+        config.setHeader("reducedTickRate.distance", "Distance in chunks a player must be from a train for it to be updated less often");
+        reducedTickRateInterval = Math.max(1, config.get("reducedTickRate.interval", 1));
+        reducedTickRateDistance = config.get("reducedTickRate.distance", 8);
+
         config.setHeader("maxTransferRadius", "\nThe maximum radius chest/furnace sign systems look for the needed blocks");
         maxTransferRadius = config.get("maxTransferRadius", 5);
 
@@ -387,6 +400,7 @@ public class TCConfig {
             config.set("statementShortcuts.diamond", "i@diamond");
         }
         statementShortcuts.clear().load(config.getNode("statementShortcuts"));
+        Statement.clearCache();
 
         //parser shortcuts
         config.setHeader("itemShortcuts", "\nSeveral shortcuts you can use on signs to set the items");
@@ -420,6 +434,17 @@ public class TCConfig {
         config.addHeader("onlyPoweredEmptySwitchersDoPathfinding", "False will allow switching of trains overriding standard path finding");
         onlyPoweredEmptySwitchersDoPathfinding = config.get("onlyPoweredEmptySwitchersDoPathfinding", false);
 
+        config.setHeader("pathFindingMaxProcessingPerTick", "\nThe maximum time in milliseconds spent every tick discovering the rail network for path finding");
+        config.addHeader("pathFindingMaxProcessingPerTick", "Lower values reduce the impact on tps while rerouting, but make rerouting take longer");
+        config.addHeader("pathFindingMaxProcessingPerTick", "Trains waiting at switchers for rerouting to complete will have to wait longer as well");
+        pathFindingMaxProcessingPerTick = MathUtil.clamp(config.get("pathFindingMaxProcessingPerTick", 30), 1, 50);
+
+        config.setHeader("railCacheVerifyInterval", "\nThe interval in ticks at which rails and signs trains drive over are checked for changes");
+        config.addHeader("railCacheVerifyInterval", "Changes made by players and by block physics are detected right away");
+        config.addHeader("railCacheVerifyInterval", "Changes made without events, for example by WorldEdit, are only detected after this interval");
+        config.addHeader("railCacheVerifyInterval", "Set to 1 to check every tick, at the cost of more block lookups");
+        railCacheVerifyInterval = MathUtil.clamp(config.get("railCacheVerifyInterval", 20), 1, 100);
+
         parsers.clear();
 
         // ================= Defaults ===============
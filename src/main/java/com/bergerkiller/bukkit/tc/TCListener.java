@@ -17,6 +17,8 @@ import com.bergerkiller.bukkit.common.wrappers.HumanHand;
 import com.bergerkiller.bukkit.tc.attachments.ProfileNameModifier;
 import com.bergerkiller.bukkit.tc.attachments.control.light.LightAPIController;
 import com.bergerkiller.bukkit.tc.attachments.ui.AttachmentEditor;
+import com.bergerkiller.bukkit.tc.cache.GroupChunkCache;
+import com.bergerkiller.bukkit.tc.cache.RailPieceCache;
 import com.bergerkiller.bukkit.tc.cache.RailSignCache;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroup;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroupStore;
@@ -58,7 +60,9 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.entity.EntityPortalEvent;
 import org.bukkit.event.entity.ItemSpawnEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
@@ -128,10 +132,8 @@ public class TCListener implements Listener {
 
         // Check no trains are keeping the chunk loaded
         World chunkWorld = event.getWorld();
-        for (MinecartGroup group : MinecartGroup.getGroups().cloneAsIterable()) {
-            if (group.isInChunk(chunkWorld, chunkCoordLong)) {
-                unloadChunkForGroup(group, event.getChunk());
-            }
+        for (MinecartGroup group : GroupChunkCache.findAll(chunkWorld, chunkCoordLong)) {
+            unloadChunkForGroup(group, event.getChunk());
         }
 
         // Double-check
@@ -147,6 +149,9 @@ public class TCListener implements Listener {
 
         OfflineGroupManager.unloadChunk(event.getChunk());
         OfflineGroupManager.lastUnloadChunk = null;
+
+        // Drop cached rail information of this chunk
+        RailPieceCache.unloadChunk(event.getChunk());
     }
 
     private void unloadChunkForGroup(MinecartGroup group, Chunk chunk) {
@@ -182,6 +187,7 @@ public class TCListener implements Listener {
         if (Bukkit.getPluginManager().isPluginEnabled("LightAPI")) {
             disableLightAPIWorld(event.getWorld());
         }
+        RailPieceCache.unloadWorld(event.getWorld());
     }
 
     // Put in its own method to further avoid loading the class when LightAPI is not enabled
@@ -853,6 +859,7 @@ public class TCListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
+        notifyBlockChange(event.getBlock());
         if (MaterialUtil.ISSIGN.get(event.getBlock())) {
             SignAction.handleDestroy(new SignActionEvent(event.getBlock()));
         } else if (MaterialUtil.ISRAILS.get(event.getBlock())) {
@@ -865,6 +872,7 @@ public class TCListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockPlace(BlockPlaceEvent event) {
+        RailPieceCache.notifyBlockChange(event.getBlockPlaced());
         RailType railType = RailType.getType(event.getBlockPlaced());
         if (railType != RailType.NONE) {
             final Block placed = event.getBlockPlaced();
@@ -901,9 +909,16 @@ public class TCListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockPhysicsMonitor(BlockPhysicsEvent event) {
-        // Handle signs being broken because their supporting block got destroyed
+        // Cached rail information near rails and signs receiving physics must be verified again
+        // Physics of other blocks happen all the time, and do not change rails or signs
         Block block = event.getBlock();
-        if (MaterialUtil.ISSIGN.get(block)) {
+        boolean isSign = MaterialUtil.ISSIGN.get(block);
+        if (isSign || RailType.getType(block) != RailType.NONE) {
+            RailPieceCache.notifyBlockChange(block);
+        }
+
+        // Handle signs being broken because their supporting block got destroyed
+        if (isSign) {
             if (!Util.isSignSupported(event.getBlock())) {
                 // Sign is no longer supported - clear all sign actions
                 SignAction.handleDestroy(new SignActionEvent(event.getBlock()));
@@ -911,6 +926,77 @@ public class TCListener implements Listener {
         }
     }
 
+    /*
+     * Blocks changed by these events must invalidate the cached rail information nearby
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPistonExtend(BlockPistonExtendEvent event) {
+        notifyBlocksChange(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPistonRetract(BlockPistonRetractEvent event) {
+        notifyBlocksChange(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent event) {
+        notifyBlockChange(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event) {
+        notifyBlockChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        notifyBlocksChange(event.blockList(), BlockFace.SELF);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        notifyBlocksChange(event.blockList(), BlockFace.SELF);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+        notifyBlockChange(event.getBlock());
+    }
+
+    /*
+     * These events fire while the old blocks still exist. A rail lookup before the blocks change
+     * would verify the cached rail information against the old blocks again, so the change
+     * is notified once more the next tick, after the blocks have changed.
+     */
+    private static void notifyBlockChange(final Block block) {
+        RailPieceCache.notifyBlockChange(block);
+        CommonUtil.nextTick(new Runnable() {
+            public void run() {
+                RailPieceCache.notifyBlockChange(block);
+            }
+        });
+    }
+
+    private static void notifyBlocksChange(List<Block> blocks, final BlockFace direction) {
+        final Block[] changed = blocks.toArray(new Block[blocks.size()]);
+        notifyBlocksChangeNow(changed, direction);
+        CommonUtil.nextTick(new Runnable() {
+            public void run() {
+                notifyBlocksChangeNow(changed, direction);
+            }
+        });
+    }
+
+    private static void notifyBlocksChangeNow(Block[] blocks, BlockFace direction) {
+        for (Block block : blocks) {
+            RailPieceCache.notifyBlockChange(block);
+            if (direction != BlockFace.SELF) {
+                RailPieceCache.notifyBlockChange(block.getRelative(direction));
+            }
+        }
+    }
+
     @EventHandler(priority = EventPriority.HIGHEST)
     public void onSignChange(SignChangeEvent event) {
         if (event.isCancelled() || TrainCarts.isWorldDisabled(event)) {
@@ -12,12 +12,15 @@ import com.bergerkiller.bukkit.common.inventory.ItemParser;
 import com.bergerkiller.bukkit.common.protocol.PacketListener;
 import com.bergerkiller.bukkit.common.utils.*;
 import com.bergerkiller.bukkit.sl.API.Variables;
+import com.bergerkiller.bukkit.tc.attachments.animation.AnimationCache;
 import com.bergerkiller.bukkit.tc.attachments.api.AttachmentTypeRegistry;
 import com.bergerkiller.bukkit.tc.attachments.config.AttachmentModelStore;
 import com.bergerkiller.bukkit.tc.attachments.control.CartAttachment;
 import com.bergerkiller.bukkit.tc.attachments.control.CartAttachmentLight;
 import com.bergerkiller.bukkit.tc.attachments.control.GlowColorTeamProvider;
 import com.bergerkiller.bukkit.tc.attachments.control.SeatAttachmentMap;
+import com.bergerkiller.bukkit.tc.cache.GroupChunkCache;
+import com.bergerkiller.bukkit.tc.cache.PlayerChunkCache;
 import com.bergerkiller.bukkit.tc.cache.RailMemberCache;
 import com.bergerkiller.bukkit.tc.cache.RailSignCache;
 import com.bergerkiller.bukkit.tc.cache.RailPieceCache;
@@ -636,6 +639,9 @@ public class TrainCarts extends PluginBase {
         RailPieceCache.reset();
         RailSignCache.reset();
         RailMemberCache.reset();
+        GroupChunkCache.reset();
+        PlayerChunkCache.reset();
+        AnimationCache.clear();
 
         this.glowColorTeamProvider.disable();
         this.glowColorTeamProvider = null;
@@ -49,12 +49,14 @@ public class Action {
     /**
      * Returns True when the current update() is the end of a new full tick.
      * When this is True, {@link #elapsedTicks()} will be incremented this update.
+     * When multiple ticks are simulated in one server tick, this is True at the
+     * end of every simulated tick.
      * 
      * @return True if this is the full end of a tick
      */
     public final boolean isFullTick() {
         MinecartGroup group = this.getGroup();
-        return group == null || this._subTicks >= group.getUpdateStepCount();
+        return group == null || this._subTicks >= group.getUpdateStepsPerTick();
     }
 
     /**
@@ -636,17 +636,26 @@ public class VirtualEntity {
     }
 
     public void broadcast(CommonPacket packet) {
+        countSentPackets();
         for (Player viewer : this.viewers) {
             PacketUtil.sendPacket(viewer, packet);
         }
     }
 
     public void broadcast(PacketHandle packet) {
+        countSentPackets();
         for (Player viewer : this.viewers) {
             PacketUtil.sendPacket(viewer, packet);
         }
     }
 
+    // Counts the packets broadcasted to all viewers towards the performance statistics of the train
+    private void countSentPackets() {
+        if (this.manager instanceof MinecartMemberNetwork) {
+            ((MinecartMemberNetwork) this.manager).addSentPackets(this.viewers.size());
+        }
+    }
+
     private DataWatcher getUsedMeta() {
         if (this.useParentMetadata && this.manager instanceof MinecartMemberNetwork) {
             return ((MinecartMemberNetwork) this.manager).getEntity().getMetaData();
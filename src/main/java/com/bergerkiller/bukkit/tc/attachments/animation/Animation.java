@@ -14,6 +14,7 @@ import com.bergerkiller.bukkit.common.config.ConfigurationNode;
 public class Animation implements Cloneable {
     private AnimationOptions _options;
     private final AnimationNode[] _nodes;
+    private final AnimationCache _cache;
     private final double _loopDuration;
     private double _time;
     private boolean _reachedEnd;
@@ -21,6 +22,7 @@ public class Animation implements Cloneable {
     protected Animation(Animation source) {
         this._options = source._options.clone();
         this._nodes = source._nodes;
+        this._cache = source._cache;
         this._loopDuration = source._loopDuration;
         this._time = source._time;
         this._reachedEnd = source._reachedEnd;
@@ -31,12 +33,18 @@ public class Animation implements Cloneable {
     }
 
     public Animation(String name, List<String> nodes_config) {
-        this(name, AnimationNode.parseAllFromStrings(nodes_config));
+        this(name, AnimationCache.fromConfig(nodes_config));
     }
 
     public Animation(String name, AnimationNode[] nodes) {
+        this(name, AnimationCache.create(nodes));
+    }
+
+    private Animation(String name, AnimationCache cache) {
+        AnimationNode[] nodes = cache.getNodes();
         this._options = new AnimationOptions(name);
         this._nodes = nodes;
+        this._cache = cache;
         this._time = 0.0;
         this._reachedEnd = false;
 
@@ -250,7 +258,7 @@ public class Animation implements Cloneable {
             if (next_i == nodes_cnt) {
                 next_i = 0;
             }
-            return AnimationNode.interpolate(this._nodes[i], this._nodes[next_i], curr_time/duration);
+            return this._cache.interpolate(i, next_i, curr_time/duration);
         }
 
         // Should never be reached
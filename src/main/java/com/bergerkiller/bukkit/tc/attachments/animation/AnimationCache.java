@@ -0,0 +1,110 @@
+package com.bergerkiller.bukkit.tc.attachments.animation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares the key frame nodes of animations, and the animation nodes interpolated
+ * from them, between all animations playing the same key frames. Animations loaded
+ * from the same configuration share the same cache, even when they are loaded for
+ * different carts. When all carts of a train play the same animation at the same moment,
+ * the interpolated animation node is computed only once and re-used by all of them.<br>
+ * <br>
+ * Animation nodes are immutable, so the same interpolated node can safely be
+ * applied to multiple attachments.
+ */
+public class AnimationCache {
+    /**
+     * Maximum number of different animation configurations that are cached.
+     * When exceeded, the cache is cleared.
+     */
+    private static final int MAX_CACHED_ANIMATIONS = 1000;
+    /**
+     * Number of recently interpolated animation nodes remembered
+     */
+    private static final int RESULT_COUNT = 8;
+    private static final Map<List<String>, AnimationCache> cachedByConfig = new HashMap<List<String>, AnimationCache>();
+    private final AnimationNode[] nodes;
+    private final int[] resultIndices = new int[RESULT_COUNT];
+    private final double[] resultThetas = new double[RESULT_COUNT];
+    private final AnimationNode[] results = new AnimationNode[RESULT_COUNT];
+    private int nextResultIndex = 0;
+
+    private AnimationCache(AnimationNode[] nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Creates a new cache for the key frame nodes of an animation.
+     * Only animations cloned from the same animation will share this cache.
+     *
+     * @param nodes of the animation
+     * @return animation cache
+     */
+    public static AnimationCache create(AnimationNode[] nodes) {
+        return new AnimationCache(nodes);
+    }
+
+    /**
+     * Gets the cache of the key frame nodes parsed from configuration. If the same
+     * configuration was parsed before, the same cache and nodes are returned.
+     *
+     * @param nodesConfig list of node configuration strings
+     * @return animation cache
+     */
+    public static AnimationCache fromConfig(List<String> nodesConfig) {
+        AnimationCache cache = cachedByConfig.get(nodesConfig);
+        if (cache == null) {
+            if (cachedByConfig.size() >= MAX_CACHED_ANIMATIONS) {
+                cachedByConfig.clear();
+            }
+            cache = new AnimationCache(AnimationNode.parseAllFromStrings(nodesConfig));
+            cachedByConfig.put(new ArrayList<String>(nodesConfig), cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Clears all cached animation configurations. Animations that are already loaded
+     * keep using their caches.
+     */
+    public static void clear() {
+        cachedByConfig.clear();
+    }
+
+    /**
+     * Gets the key frame nodes of the animation
+     *
+     * @return nodes
+     */
+    public AnimationNode[] getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Interpolates between a key frame node and the next node. If the same
+     * interpolation was performed recently, the same result is returned.
+     *
+     * @param index of the key frame node to interpolate from
+     * @param nextIndex of the key frame node to interpolate to
+     * @param theta interpolation factor, 0.0 returns the node at index, 1.0 the next node
+     * @return interpolated animation node
+     */
+    public AnimationNode interpolate(int index, int nextIndex, double theta) {
+        for (int i = 0; i < RESULT_COUNT; i++) {
+            if (this.resultThetas[i] == theta && this.resultIndices[i] == index && this.results[i] != null) {
+                return this.results[i];
+            }
+        }
+
+        AnimationNode result = AnimationNode.interpolate(this.nodes[index], this.nodes[nextIndex], theta);
+        int resultIndex = this.nextResultIndex;
+        this.resultIndices[resultIndex] = index;
+        this.resultThetas[resultIndex] = theta;
+        this.results[resultIndex] = result;
+        this.nextResultIndex = (resultIndex + 1) % RESULT_COUNT;
+        return result;
+    }
+}
@@ -89,6 +89,18 @@ public interface Attachment {
      */
     void onTransformChanged(Matrix4x4 transform);
 
+    /**
+     * Gets whether {@link #onTransformChanged(Matrix4x4)} only has to be called when the
+     * transformation of this attachment changes. When true, the position update of
+     * this attachment is skipped while neither it nor its parent moves.
+     * By default this returns false, and the method is called every update.
+     * 
+     * @return True if the position update can be skipped while the transformation is unchanged
+     */
+    default boolean isTransformUpdateSkippable() {
+        return false;
+    }
+
     /**
      * Called every now and then to refresh the position of the attachment
      * 
@@ -25,6 +25,11 @@ public abstract class AttachmentAnchor {
      * Default anchor is relative to the parent attachment
      */
     public static AttachmentAnchor DEFAULT = register(new AttachmentAnchor("default") {
+        @Override
+        public boolean dependsOnParentOnly() {
+            return true;
+        }
+
         @Override
         public void apply(Attachment attachment, Matrix4x4 transform) {
         }
@@ -35,6 +40,11 @@ public abstract class AttachmentAnchor {
      * This will cause the attachment to always point in the same direction.
      */
     public static AttachmentAnchor NO_ROTATION = register(new AttachmentAnchor("no rotation") {
+        @Override
+        public boolean dependsOnParentOnly() {
+            return true;
+        }
+
         @Override
         public void apply(Attachment attachment, Matrix4x4 transform) {
             Vector3 absolutePosition = transform.toVector3();
@@ -48,6 +58,11 @@ public abstract class AttachmentAnchor {
      * is preserved of the parent attachment.
      */
     public static AttachmentAnchor ALIGN_UP = register(new AttachmentAnchor("align up") {
+        @Override
+        public boolean dependsOnParentOnly() {
+            return true;
+        }
+
         @Override
         public void apply(Attachment attachment, Matrix4x4 transform) {
             Vector3 absolutePosition = transform.toVector3();
@@ -94,6 +109,11 @@ public abstract class AttachmentAnchor {
             return attachmentType == CartAttachmentSeat.TYPE;
         }
 
+        @Override
+        public boolean dependsOnParentOnly() {
+            return true;
+        }
+
         @Override
         public void apply(Attachment attachment, Matrix4x4 transform) {
         }
@@ -175,6 +195,17 @@ public abstract class AttachmentAnchor {
         return false;
     }
 
+    /**
+     * Whether the anchor transformation only depends on the parent transformation, and not
+     * on other state that can change over time. When true, attachments using this anchor do not
+     * have to be updated while the parent transformation is unchanged.
+     * 
+     * @return True if only dependent on the parent transformation
+     */
+    public boolean dependsOnParentOnly() {
+        return false;
+    }
+
     /**
      * Applies the anchor to the input parent-relative absolute transformation information.
      * 
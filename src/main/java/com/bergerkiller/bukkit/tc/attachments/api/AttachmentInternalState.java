@@ -91,6 +91,13 @@ public class AttachmentInternalState {
      */
     public ObjectPosition position = new ObjectPosition();
 
+    /**
+     * Level-of-detail distance of the attachment. Viewers further away than this
+     * distance do not see this attachment, nor any of its child attachments.
+     * A value of 0 or less makes the attachment visible at all distances.
+     */
+    public double lodDistance = 0.0;
+
     /**
      * Previous transform
      */
@@ -101,6 +108,13 @@ public class AttachmentInternalState {
      */
     public Matrix4x4 curr_transform = null;
 
+    /**
+     * Whether the current transform changed during the last position update.
+     * When neither the parent nor this attachment changed, the next position
+     * update can skip this attachment.
+     */
+    public boolean transform_changed = true;
+
     /**
      * Loads configuration that applies to all attachments into this internal state.
      * 
@@ -118,6 +132,13 @@ public class AttachmentInternalState {
         // Position
         this.position.load(managerType, attachmentType, config.getNode("position"));
 
+        // The position may have changed, so the transform must be computed again
+        // This makes sure the next position update does not skip this attachment
+        this.transform_changed = true;
+
+        // Level of detail
+        this.lodDistance = config.contains("lodDistance") ? config.get("lodDistance", 0.0) : 0.0;
+
         // Animation list
         if (config.isNode("animations")) {
             ConfigurationNode animations = config.getNode("animations");
@@ -137,5 +158,6 @@ public class AttachmentInternalState {
         this.animations.clear();
         this.last_transform = null;
         this.curr_transform = null;
+        this.transform_changed = true;
     }
 }
@@ -1,5 +1,7 @@
 package com.bergerkiller.bukkit.tc.attachments.api;
 
+import org.bukkit.entity.Player;
+
 import com.bergerkiller.bukkit.common.config.ConfigurationNode;
 
 /**
@@ -24,6 +26,19 @@ public interface AttachmentManager {
      */
     org.bukkit.World getWorld();
 
+    /**
+     * Gets the distance between a viewer and the attachments, as used for deciding
+     * which attachments are shown to the viewer. Attachments with a level-of-detail
+     * distance smaller than this distance are hidden from the viewer.
+     * By default the distance is 0, showing all attachments.
+     * 
+     * @param viewer
+     * @return view distance
+     */
+    default double getViewDistance(Player viewer) {
+        return 0.0;
+    }
+
     /**
      * Gets the {@link AttachmentTypeRegistry} used to find and create new attachments from
      * configuration.
@@ -41,6 +41,11 @@ public class CartAttachmentEmpty extends CartAttachment {
     public void onTick() {
     }
 
+    @Override
+    public boolean isTransformUpdateSkippable() {
+        return true;
+    }
+
     @Override
     public void onMove(boolean absolute) {
     }
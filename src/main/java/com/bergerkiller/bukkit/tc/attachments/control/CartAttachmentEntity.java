@@ -345,6 +345,11 @@ public class CartAttachmentEntity extends CartAttachment {
         this.updateGlowColorFor(this.entity.getEntityUUID(), null, viewer);
     }
 
+    @Override
+    public boolean isTransformUpdateSkippable() {
+        return true;
+    }
+
     @Override
     public void onTransformChanged(Matrix4x4 transform) {
         this.entity.updatePosition(transform);
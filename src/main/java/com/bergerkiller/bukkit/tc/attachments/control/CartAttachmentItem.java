@@ -186,6 +186,11 @@ public class CartAttachmentItem extends CartAttachment {
         // this.updateGlowColor(this.entity.getEntityUUID(), null);
     }
 
+    @Override
+    public boolean isTransformUpdateSkippable() {
+        return true;
+    }
+
     @Override
     public void onTransformChanged(Matrix4x4 transform) {
         // Switch to old logic for debugging the pivot point changes in 1.12.2-v3
@@ -153,6 +153,11 @@ public class CartAttachmentLight extends CartAttachment {
     public void onTick() {
     }
 
+    @Override
+    public boolean isTransformUpdateSkippable() {
+        return true;
+    }
+
     @Override
     public void onMove(boolean absolute) {
         Vector pos_d = this.getTransform().toVector();
@@ -93,6 +93,11 @@ public class CartAttachmentPlatformOriginal extends CartAttachment {
         entity.destroy(viewer);
     }
 
+    @Override
+    public boolean isTransformUpdateSkippable() {
+        return true;
+    }
+
     @Override
     public void onTransformChanged(Matrix4x4 transform) {
         this.entity.updatePosition(transform);
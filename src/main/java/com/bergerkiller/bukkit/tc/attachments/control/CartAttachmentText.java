@@ -120,6 +120,11 @@ public class CartAttachmentText extends CartAttachment {
         this.entity.syncPosition(absolute);
     }
 
+    @Override
+    public boolean isTransformUpdateSkippable() {
+        return true;
+    }
+
     @Override
     public void onTransformChanged(Matrix4x4 transform) {
         this.entity.updatePosition(transform);
@@ -43,7 +43,7 @@ public class HelperMethods {
         UpdatePositionsState update_state = UpdatePositionsState.INSTANCE;
         try {
             // Refresh root attachment using the specified transform
-            updatePositionsSingle(update_state, startAttachment, transform);
+            updatePositionsSingle(update_state, startAttachment, transform, true);
 
             // Add all children and begin processing those
             update_state.pendingUpdates.addAll(startAttachment.getChildren());
@@ -55,7 +55,8 @@ public class HelperMethods {
             while (startIndex < (endIndex = update_state.pendingUpdates.size())) {
                 for (int index = startIndex; index < endIndex; index++) {
                     Attachment attachment = update_state.pendingUpdates.get(index);
-                    updatePositionsSingle(update_state, attachment, attachment.getParent().getTransform());
+                    AttachmentInternalState parentState = attachment.getParent().getInternalState();
+                    updatePositionsSingle(update_state, attachment, parentState.curr_transform, parentState.transform_changed);
                     update_state.pendingUpdates.addAll(attachment.getChildren());
                 }
                 startIndex = endIndex;
@@ -74,9 +75,15 @@ public class HelperMethods {
     /*
      * Update logic for a single attachment only
      */
-    private static void updatePositionsSingle(UpdatePositionsState update_state, Attachment attachment, Matrix4x4 transform) {
+    private static void updatePositionsSingle(UpdatePositionsState update_state, Attachment attachment, Matrix4x4 transform, boolean parentChanged) {
         AttachmentInternalState state = attachment.getInternalState();
 
+        // Skip the attachment entirely when nothing happened that could change its transform
+        // The last transform is already equal to the current transform, as it did not change last time either
+        if (!parentChanged && !state.transform_changed && canSkipUpdate(attachment, state)) {
+            return;
+        }
+
         // Update last transform if one is available
         boolean hasLastTransform = (state.last_transform != null);
         if (state.curr_transform != null) {
@@ -147,6 +154,40 @@ public class HelperMethods {
         if (!hasLastTransform) {
             state.last_transform = state.curr_transform.clone();
         }
+
+        // Track whether the transform changed, so that unchanged children can be skipped
+        state.transform_changed = !isSameTransform(state.curr_transform, state.last_transform);
+    }
+
+    /*
+     * Checks whether all the elements of two transforms are exactly the same.
+     * A transform computed from the same inputs produces the exact same elements.
+     */
+    private static boolean isSameTransform(Matrix4x4 a, Matrix4x4 b) {
+        return a.m00 == b.m00 && a.m01 == b.m01 && a.m02 == b.m02 && a.m03 == b.m03 &&
+               a.m10 == b.m10 && a.m11 == b.m11 && a.m12 == b.m12 && a.m13 == b.m13 &&
+               a.m20 == b.m20 && a.m21 == b.m21 && a.m22 == b.m22 && a.m23 == b.m23 &&
+               a.m30 == b.m30 && a.m31 == b.m31 && a.m32 == b.m32 && a.m33 == b.m33;
+    }
+
+    /*
+     * Checks whether the transform of an attachment stays the same when the parent transform is unchanged
+     */
+    private static boolean canSkipUpdate(Attachment attachment, AttachmentInternalState state) {
+        if (state.curr_transform == null || state.last_transform == null) {
+            return false;
+        }
+        if (!attachment.isTransformUpdateSkippable() || !state.position.anchor.dependsOnParentOnly()) {
+            return false;
+        }
+        if (!state.nextAnimationQueue.isEmpty()) {
+            return false;
+        }
+        if (state.currentAnimation == null) {
+            return state.lastAnimationState == null;
+        } else {
+            return state.currentAnimation.hasReachedEnd();
+        }
     }
 
     // Singleton helper object
@@ -165,9 +206,26 @@ public class HelperMethods {
      * @param viewer to hide it from
      */
     public static void makeHiddenRecursive(Attachment root, boolean active, Player viewer) {
+        makeHiddenRecursive(root, active, viewer, 0.0);
+    }
+
+    /**
+     * Hides an attachment and all child attachments recursively.
+     * Attachments that are not visible at the view distance specified are skipped.
+     * This helper function calls {@link #makeHidden(Player)}.
+     * 
+     * @param root attachment to hide, only root attachment is permitted
+     * @param active whether the attachment and parent attachments are active
+     * @param viewer to hide it from
+     * @param viewDistance of the viewer at which the attachments were made visible
+     */
+    public static void makeHiddenRecursive(Attachment root, boolean active, Player viewer, double viewDistance) {
+        if (!isWithinLodDistance(root, viewDistance)) {
+            return;
+        }
         active &= root.isActive();
         for (Attachment child : root.getChildren()) {
-            makeHiddenRecursive(child, active, viewer);
+            makeHiddenRecursive(child, active, viewer, viewDistance);
         }
         if (active || !root.isHiddenWhenInactive()) {
             root.makeHidden(viewer);
@@ -183,15 +241,102 @@ public class HelperMethods {
      * @param viewer to make it disable to
      */
     public static void makeVisibleRecursive(Attachment root, boolean active, Player viewer) {
+        makeVisibleRecursive(root, active, viewer, 0.0);
+    }
+
+    /**
+     * Makes an attachment and all child attachments visible recursively.
+     * Attachments that are not visible at the view distance specified are skipped.
+     * This helper function calls {@link #makeVisible(Player)}.
+     * 
+     * @param root attachment to make visible, only root attachment is permitted
+     * @param active whether the attachment and parent attachments are active
+     * @param viewer to make it visible to
+     * @param viewDistance of the viewer
+     */
+    public static void makeVisibleRecursive(Attachment root, boolean active, Player viewer, double viewDistance) {
+        if (!isWithinLodDistance(root, viewDistance)) {
+            return;
+        }
         active &= root.isActive();
         if (active || !root.isHiddenWhenInactive()) {
             root.makeVisible(viewer);
         }
         for (Attachment child : root.getChildren()) {
-            makeVisibleRecursive(child, active, viewer);
+            makeVisibleRecursive(child, active, viewer, viewDistance);
+        }
+    }
+
+    /**
+     * Updates the attachments shown to a viewer after the view distance of the viewer changed.
+     * Attachments whose level-of-detail distance was crossed are made visible or hidden,
+     * together with their child attachments.
+     * 
+     * @param root attachment to update, only root attachment is permitted
+     * @param active whether the attachment and parent attachments are active
+     * @param viewer whose view distance changed
+     * @param oldViewDistance of the viewer the attachments are currently visible at
+     * @param newViewDistance of the viewer
+     */
+    public static void updateLodRecursive(Attachment root, boolean active, Player viewer, double oldViewDistance, double newViewDistance) {
+        boolean wasVisible = isWithinLodDistance(root, oldViewDistance);
+        boolean isVisible = isWithinLodDistance(root, newViewDistance);
+        if (wasVisible != isVisible) {
+            if (isVisible) {
+                makeVisibleRecursive(root, active, viewer, newViewDistance);
+            } else {
+                makeHiddenRecursive(root, active, viewer, oldViewDistance);
+            }
+        } else if (isVisible) {
+            active &= root.isActive();
+            for (Attachment child : root.getChildren()) {
+                updateLodRecursive(child, active, viewer, oldViewDistance, newViewDistance);
+            }
         }
     }
 
+    /**
+     * Gets whether an attachment, or a child attachment, has a level-of-detail distance set
+     * 
+     * @param root attachment
+     * @return True if a level-of-detail distance is set
+     */
+    public static boolean hasLodDistanceRecursive(Attachment root) {
+        if (root.getInternalState().lodDistance > 0.0) {
+            return true;
+        }
+        for (Attachment child : root.getChildren()) {
+            if (hasLodDistanceRecursive(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets whether an attachment and all its parents are visible to a viewer at the
+     * view distance of the viewer, based on the level-of-detail distances of the attachments.
+     * 
+     * @param attachment
+     * @param viewer
+     * @return True if the attachment is visible to the viewer
+     */
+    public static boolean isLodVisible(Attachment attachment, Player viewer) {
+        double viewDistance = attachment.getManager().getViewDistance(viewer);
+        while (attachment != null) {
+            if (!isWithinLodDistance(attachment, viewDistance)) {
+                return false;
+            }
+            attachment = attachment.getParent();
+        }
+        return true;
+    }
+
+    private static boolean isWithinLodDistance(Attachment attachment, double viewDistance) {
+        double lodDistance = attachment.getInternalState().lodDistance;
+        return lodDistance <= 0.0 || viewDistance <= lodDistance;
+    }
+
     /**
      * Gets whether a parent higher up the tree is inactive, concluding therefore
      * that the attachment itself can not be active.
@@ -223,11 +368,15 @@ public class HelperMethods {
         if (attachment.isHiddenWhenInactive()) {
             if (active) {
                 for (Player viewer : viewers) {
-                    attachment.makeVisible(viewer);
+                    if (isLodVisible(attachment, viewer)) {
+                        attachment.makeVisible(viewer);
+                    }
                 }
             } else {
                 for (Player viewer : viewers) {
-                    attachment.makeHidden(viewer);
+                    if (isLodVisible(attachment, viewer)) {
+                        attachment.makeHidden(viewer);
+                    }
                 }
             }
             attachment.getInternalState().last_transform = null;
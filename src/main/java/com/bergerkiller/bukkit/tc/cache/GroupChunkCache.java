@@ -0,0 +1,126 @@
+package com.bergerkiller.bukkit.tc.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.World;
+
+import com.bergerkiller.bukkit.common.utils.MathUtil;
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
+import com.bergerkiller.bukkit.tc.controller.MinecartGroup;
+import com.bergerkiller.bukkit.tc.utils.ChunkArea;
+
+/**
+ * Cache that tracks the chunks inside the chunk area of trains, allowing for quick
+ * retrieval of the trains that are affected when a chunk unloads. The chunks of a train
+ * are updated every time the chunk area of the train is refreshed.<br>
+ * <br>
+ * Trains whose chunk area is outdated, because members were added or removed, are
+ * tracked separately. For these trains whether they are inside a chunk is calculated
+ * the slow way, until the chunk area is refreshed again.
+ */
+public class GroupChunkCache {
+    private static final Map<World, LongHashMap<List<MinecartGroup>>> groupsByChunk = new IdentityHashMap<World, LongHashMap<List<MinecartGroup>>>();
+    private static final Map<MinecartGroup, Boolean> outdatedGroups = new IdentityHashMap<MinecartGroup, Boolean>();
+
+    /**
+     * Wipes all groups stored in the cache
+     */
+    public static void reset() {
+        groupsByChunk.clear();
+        outdatedGroups.clear();
+    }
+
+    /**
+     * Finds all the groups that are inside a chunk
+     *
+     * @param world of the chunk
+     * @param chunkLongCoord chunk coordinates, encoded as a Long
+     * @return groups inside the chunk, a copy that may be modified
+     */
+    public static List<MinecartGroup> findAll(World world, long chunkLongCoord) {
+        LongHashMap<List<MinecartGroup>> chunks = groupsByChunk.get(world);
+        List<MinecartGroup> groups = (chunks == null) ? null : chunks.get(chunkLongCoord);
+        if (groups == null && outdatedGroups.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<MinecartGroup> result = (groups == null) ? new ArrayList<MinecartGroup>() : new ArrayList<MinecartGroup>(groups);
+        for (MinecartGroup group : outdatedGroups.keySet()) {
+            if (!result.contains(group) && group.isInChunk(world, chunkLongCoord)) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tells the cache that the chunk area of a group is outdated, and must be
+     * calculated the slow way until it is refreshed.
+     *
+     * @param group
+     */
+    public static void markOutdated(MinecartGroup group) {
+        outdatedGroups.put(group, Boolean.TRUE);
+    }
+
+    /**
+     * Updates the chunks of a group after its chunk area was refreshed
+     *
+     * @param group
+     * @param chunkArea of the group, after refreshing
+     */
+    public static void update(MinecartGroup group, ChunkArea chunkArea) {
+        outdatedGroups.remove(group);
+        for (ChunkArea.OwnedChunk chunk : chunkArea.getRemoved()) {
+            removeChunk(group, chunk);
+        }
+        for (ChunkArea.OwnedChunk chunk : chunkArea.getAdded()) {
+            LongHashMap<List<MinecartGroup>> chunks = groupsByChunk.get(chunk.getWorld());
+            if (chunks == null) {
+                chunks = new LongHashMap<List<MinecartGroup>>();
+                groupsByChunk.put(chunk.getWorld(), chunks);
+            }
+            long key = MathUtil.longHashToLong(chunk.getX(), chunk.getZ());
+            List<MinecartGroup> groups = chunks.get(key);
+            if (groups == null) {
+                groups = new ArrayList<MinecartGroup>(1);
+                chunks.put(key, groups);
+            }
+            if (!groups.contains(group)) {
+                groups.add(group);
+            }
+        }
+    }
+
+    /**
+     * Removes all chunks of a group from the cache
+     *
+     * @param group
+     * @param chunkArea of the group
+     */
+    public static void remove(MinecartGroup group, ChunkArea chunkArea) {
+        outdatedGroups.remove(group);
+        for (ChunkArea.OwnedChunk chunk : chunkArea.getAll()) {
+            removeChunk(group, chunk);
+        }
+    }
+
+    private static void removeChunk(MinecartGroup group, ChunkArea.OwnedChunk chunk) {
+        LongHashMap<List<MinecartGroup>> chunks = groupsByChunk.get(chunk.getWorld());
+        if (chunks == null) {
+            return;
+        }
+        long key = MathUtil.longHashToLong(chunk.getX(), chunk.getZ());
+        List<MinecartGroup> groups = chunks.get(key);
+        if (groups != null && groups.remove(group) && groups.isEmpty()) {
+            chunks.remove(key);
+            if (chunks.size() == 0) {
+                groupsByChunk.remove(chunk.getWorld());
+            }
+        }
+    }
+}
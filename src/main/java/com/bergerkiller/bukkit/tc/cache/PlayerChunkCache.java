@@ -0,0 +1,69 @@
+package com.bergerkiller.bukkit.tc.cache;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import com.bergerkiller.bukkit.common.utils.CommonUtil;
+import com.bergerkiller.bukkit.common.utils.MathUtil;
+
+/**
+ * Cache of the chunk coordinates players are in, per world. The coordinates are
+ * collected at most once per tick, so that many trains can check for nearby players
+ * without each going by all the players of the world.
+ */
+public class PlayerChunkCache {
+    private static final Map<World, PlayerChunks> chunksByWorld = new IdentityHashMap<World, PlayerChunks>();
+    private static final int[] NO_CHUNKS = new int[0];
+
+    /**
+     * Wipes all player chunks stored in the cache
+     */
+    public static void reset() {
+        chunksByWorld.clear();
+    }
+
+    /**
+     * Gets the chunk coordinates of all players in a world during the current tick.
+     * The returned array stores the chunk x and z coordinate of every player
+     * after each other, and must not be modified.
+     *
+     * @param world
+     * @return player chunk coordinates
+     */
+    public static int[] getChunks(World world) {
+        int serverTicks = CommonUtil.getServerTicks();
+        PlayerChunks chunks = chunksByWorld.get(world);
+        if (chunks == null) {
+            chunks = new PlayerChunks();
+            chunksByWorld.put(world, chunks);
+        } else if (chunks.serverTicks == serverTicks) {
+            return chunks.coordinates;
+        }
+
+        List<Player> players = world.getPlayers();
+        if (players.isEmpty()) {
+            chunks.coordinates = NO_CHUNKS;
+        } else {
+            int[] coordinates = new int[players.size() * 2];
+            int index = 0;
+            for (Player player : players) {
+                Location loc = player.getLocation();
+                coordinates[index++] = MathUtil.toChunk(loc.getX());
+                coordinates[index++] = MathUtil.toChunk(loc.getZ());
+            }
+            chunks.coordinates = coordinates;
+        }
+        chunks.serverTicks = serverTicks;
+        return chunks.coordinates;
+    }
+
+    private static final class PlayerChunks {
+        public int serverTicks;
+        public int[] coordinates = NO_CHUNKS;
+    }
+}
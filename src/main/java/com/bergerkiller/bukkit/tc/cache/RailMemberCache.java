@@ -1,9 +1,12 @@
 package com.bergerkiller.bukkit.tc.cache;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.bukkit.block.Block;
@@ -11,24 +14,31 @@ import org.bukkit.block.Block;
 import com.bergerkiller.bukkit.common.bases.IntVector3;
 import com.bergerkiller.bukkit.tc.TrainCarts;
 import com.bergerkiller.bukkit.tc.controller.MinecartMember;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
 
 /**
  * Cache that tracks what rail blocks trains are occupying, allowing for quick
  * retrieval of train information that are on a particular rails block. This is used
  * for wait distance functionality and when spawning trains. It is also used when
  * a sign is activated by redstone, and the train that is on the rail coupled by it
- * needs to be found.
+ * needs to be found.<br>
+ * <br>
+ * Besides the members per rail block, the rail blocks per member are tracked as well,
+ * so that removing a member does not require going by all the rails in the cache.
+ * Looking up a rail block that no member occupies does not allocate any objects.<br>
+ * <br>
+ * Members are only indexed by the exact rail block they occupy. To find the nearest
+ * member ahead of a train, the rails ahead must be walked and every rail block looked up.
  */
 public class RailMemberCache {
-    private static final ListMultimap<Block, MinecartMember<?>> cache = ArrayListMultimap.create(2000, 2);
+    private static final Map<Block, List<MinecartMember<?>>> cache = new HashMap<Block, List<MinecartMember<?>>>(2000);
+    private static final Map<MinecartMember<?>, List<Block>> blocksByMember = new IdentityHashMap<MinecartMember<?>, List<Block>>(500);
 
     /**
      * Wipes all members stored in the cache
      */
     public static void reset() {
         cache.clear();
+        blocksByMember.clear();
     }
 
     /**
@@ -38,11 +48,11 @@ public class RailMemberCache {
      * @return member on this rail, null if none is on it
      */
     public static MinecartMember<?> find(Block railBlock) {
-        Collection<MinecartMember<?>> members = cache.get(railBlock);
-        if (members.isEmpty()) {
+        List<MinecartMember<?>> members = cache.get(railBlock);
+        if (members == null) {
             return null;
         }
-        MinecartMember<?> result = members.iterator().next();
+        MinecartMember<?> result = members.get(0);
         if (result.isUnloaded()) {
             TrainCarts.plugin.log(Level.WARNING, "Purged unloaded minecart from rail cache at " + new IntVector3(railBlock));
             remove(result);
@@ -58,13 +68,14 @@ public class RailMemberCache {
      * @return members on this rail
      */
     public static Collection<MinecartMember<?>> findAll(Block railBlock) {
-        Collection<MinecartMember<?>> members = cache.get(railBlock);
-        Iterator<MinecartMember<?>> iter = members.iterator();
-        while (iter.hasNext()) {
-            MinecartMember<?> member = iter.next();
+        List<MinecartMember<?>> members = cache.get(railBlock);
+        if (members == null) {
+            return Collections.emptyList();
+        }
+        for (int i = 0; i < members.size(); i++) {
+            MinecartMember<?> member = members.get(i);
             if (member.isUnloaded()) {
                 TrainCarts.plugin.log(Level.WARNING, "Purged unloaded minecart from rail cache at " + new IntVector3(railBlock));
-                iter.remove();
                 remove(member);
                 return findAll(railBlock);
             }
@@ -78,10 +89,10 @@ public class RailMemberCache {
      * @param member value to remove
      */
     public static void remove(MinecartMember<?> member) {
-        Iterator<MinecartMember<?>> iter = cache.values().iterator();
-        while (iter.hasNext()) {
-            if (iter.next() == member) {
-                iter.remove();
+        List<Block> blocks = blocksByMember.remove(member);
+        if (blocks != null) {
+            for (Block railBlock : blocks) {
+                removeFromBlock(railBlock, member);
             }
         }
     }
@@ -93,7 +104,9 @@ public class RailMemberCache {
      * @param member
      */
     public static void removeBlock(Block railBlock, MinecartMember<?> member) {
-        cache.remove(railBlock, member);
+        if (removeFromBlock(railBlock, member)) {
+            removeMemberBlock(member, railBlock);
+        }
     }
 
     /**
@@ -103,7 +116,13 @@ public class RailMemberCache {
      * @param member
      */
     public static void addBlock(Block railBlock, MinecartMember<?> member) {
-        cache.put(railBlock, member);
+        List<MinecartMember<?>> members = cache.get(railBlock);
+        if (members == null) {
+            members = new ArrayList<MinecartMember<?>>(2);
+            cache.put(railBlock, members);
+        }
+        members.add(member);
+        addMemberBlock(member, railBlock);
     }
 
     /**
@@ -116,17 +135,56 @@ public class RailMemberCache {
      */
     public static void changeMember(Block railBlock, MinecartMember<?> oldMember, MinecartMember<?> newMember) {
         List<MinecartMember<?>> members = cache.get(railBlock);
-        ListIterator<MinecartMember<?>> iter = members.listIterator();
-        while (iter.hasNext()) {
-            if (iter.next() == oldMember) {
-                if (oldMember != newMember) {
-                    iter.set(newMember);
+        if (members != null) {
+            for (int i = 0; i < members.size(); i++) {
+                if (members.get(i) == oldMember) {
+                    if (oldMember != newMember) {
+                        members.set(i, newMember);
+                        removeMemberBlock(oldMember, railBlock);
+                        addMemberBlock(newMember, railBlock);
+                    }
+                    return;
                 }
-                return;
             }
         }
 
         // Not yet in it. Add it.
-        members.add(newMember);
+        addBlock(railBlock, newMember);
+    }
+
+    private static void addMemberBlock(MinecartMember<?> member, Block railBlock) {
+        List<Block> blocks = blocksByMember.get(member);
+        if (blocks == null) {
+            blocks = new ArrayList<Block>(4);
+            blocksByMember.put(member, blocks);
+        }
+        blocks.add(railBlock);
+    }
+
+    private static void removeMemberBlock(MinecartMember<?> member, Block railBlock) {
+        List<Block> blocks = blocksByMember.get(member);
+        if (blocks != null) {
+            blocks.remove(railBlock);
+            if (blocks.isEmpty()) {
+                blocksByMember.remove(member);
+            }
+        }
+    }
+
+    private static boolean removeFromBlock(Block railBlock, MinecartMember<?> member) {
+        List<MinecartMember<?>> members = cache.get(railBlock);
+        if (members == null) {
+            return false;
+        }
+        for (int i = 0; i < members.size(); i++) {
+            if (members.get(i) == member) {
+                members.remove(i);
+                if (members.isEmpty()) {
+                    cache.remove(railBlock);
+                }
+                return true;
+            }
+        }
+        return false;
     }
 }
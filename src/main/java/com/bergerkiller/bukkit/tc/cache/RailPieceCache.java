@@ -1,13 +1,19 @@
 package com.bergerkiller.bukkit.tc.cache;
 
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 
+import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 
 import com.bergerkiller.bukkit.common.utils.MathUtil;
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
+import com.bergerkiller.bukkit.tc.TCConfig;
 import com.bergerkiller.bukkit.tc.controller.components.RailPiece;
 import com.bergerkiller.bukkit.tc.controller.components.RailPath;
 import com.bergerkiller.bukkit.tc.controller.components.RailState;
@@ -15,57 +21,197 @@ import com.bergerkiller.bukkit.tc.rails.type.RailType;
 
 /**
  * Caches {@link com.bergerkiller.bukkit.tc.controller.components.RailPiece RailPiece} information for
- * positions in the world.
+ * positions in the world. The information is stored per world, grouped by chunk, so that all
+ * information of a chunk can be dropped at once when it unloads or is no longer used.<br>
+ * <br>
+ * Cached information is only verified again after a block changed near its position, which is
+ * tracked using a modification counter per block column incremented by {@link #notifyBlockChange(Block)}.
+ * Whole columns are tracked because the signs of rails can be stacked below them. As a fallback
+ * for blocks changed without firing events, information is also verified again every
+ * {@link TCConfig#railCacheVerifyInterval} ticks.<br>
+ * <br>
+ * Positions where no rails exist can be cached as well by storing {@link #NO_RAILS}. As it
+ * is not possible to cheaply verify that rails still do not exist, these entries are removed
+ * instead of verified.
  */
 public class RailPieceCache {
-    private static final LookupKey LOOKUP_KEY = new LookupKey();
     private static final RailPiece[] EMPTY_INFO = new RailPiece[0];
-    private static final Map<Key, Value> cache = new HashMap<Key, Value>();
+    /**
+     * Stored and returned for positions where it is known no rails exist.
+     * Compare by identity to distinguish it from positions not in the cache.
+     */
+    public static final RailPiece[] NO_RAILS = new RailPiece[0];
+    private static final int MAX_TEMPORARY_ENTRIES = 4096;
+    private static final int MAX_LIFE = 20; // ticks an unused entry is kept
+    private static final Map<World, WorldCache> worlds = new IdentityHashMap<World, WorldCache>();
+    private static final Queue<Value> temporaryValues = new ArrayDeque<Value>();
+    private static final List<ChunkCache> deadChunks = new ArrayList<ChunkCache>();
+    private static final List<Value> deadValues = new ArrayList<Value>();
+    private static boolean temporaryMode = false;
     private static int lifeTimer = 0;
+    private static int changeCounter = 0;
+    private static WorldCache lastWorld = null;
 
     /**
      * Removes rail pieces cached at a block position in the world
-     * 
+     *
      * @param blockPosition
      */
     public static void removeAtPosition(Block blockPosition) {
-        try (LookupKey key = LOOKUP_KEY.lock(blockPosition)) {
-            cache.remove(key);
+        ChunkCache chunk = getChunk(blockPosition.getWorld(), blockPosition.getX() >> 4, blockPosition.getZ() >> 4, false);
+        if (chunk != null) {
+            chunk.values.remove(blockKey(blockPosition.getX(), blockPosition.getY(), blockPosition.getZ()));
+        }
+    }
+
+    /**
+     * Removes all rail pieces cached for positions inside a chunk
+     *
+     * @param chunk
+     */
+    public static void unloadChunk(Chunk chunk) {
+        WorldCache worldCache = worlds.get(chunk.getWorld());
+        if (worldCache != null) {
+            worldCache.chunks.remove(MathUtil.longHashToLong(chunk.getX(), chunk.getZ()));
+        }
+    }
+
+    /**
+     * Removes all rail pieces cached for positions on a world
+     *
+     * @param world
+     */
+    public static void unloadWorld(World world) {
+        if (worlds.remove(world) != null) {
+            lastWorld = null;
+        }
+    }
+
+    /**
+     * Notifies that a block in the world has changed, or is about to change. Cached rail
+     * information at positions near the block will be verified again the next time it is
+     * looked up.
+     *
+     * @param block that changed
+     */
+    public static void notifyBlockChange(Block block) {
+        notifyBlockChange(block.getWorld(), block.getX(), block.getZ());
+    }
+
+    /**
+     * Notifies that a block in the world has changed, or is about to change. Cached rail
+     * information at positions near the block will be verified again the next time it is
+     * looked up.
+     *
+     * @param world of the block
+     * @param x - coordinate of the block
+     * @param z - coordinate of the block
+     */
+    public static void notifyBlockChange(World world, int x, int z) {
+        // Rails and signs of a position can be in neighbouring blocks, so mark
+        // the block columns in a small area around the block as changed.
+        // This area may cross into neighbouring chunks.
+        int cxMin = (x - 2) >> 4;
+        int czMin = (z - 2) >> 4;
+        int cxMax = (x + 2) >> 4;
+        int czMax = (z + 2) >> 4;
+        for (int cx = cxMin; cx <= cxMax; cx++) {
+            for (int cz = czMin; cz <= czMax; cz++) {
+                ChunkCache chunk = getChunk(world, cx, cz, false);
+                if (chunk == null) {
+                    continue;
+                }
+
+                int bxMin = Math.max(x - 2, cx << 4);
+                int bzMin = Math.max(z - 2, cz << 4);
+                int bxMax = Math.min(x + 2, (cx << 4) + 15);
+                int bzMax = Math.min(z + 2, (cz << 4) + 15);
+                for (int bx = bxMin; bx <= bxMax; bx++) {
+                    for (int bz = bzMin; bz <= bzMax; bz++) {
+                        chunk.columnModCounts[columnIndex(bx, bz)]++;
+                    }
+                }
+                chunk.modCount = ++changeCounter;
+            }
         }
     }
 
+    /**
+     * Gets a counter that changes every time a block changes in or near a chunk.
+     * Can be used to detect that information derived from rails in the chunk,
+     * like a walked path, may have changed. Chunks not tracked yet are tracked
+     * from now on, and are kept tracked while this method is called for them.
+     * When a chunk is no longer tracked, the counter changes as well.
+     *
+     * @param world of the chunk
+     * @param cx - coordinate of the chunk
+     * @param cz - coordinate of the chunk
+     * @return change counter of the chunk
+     */
+    public static int getChunkChangeCounter(World world, int cx, int cz) {
+        ChunkCache chunk = getChunk(world, cx, cz, true);
+        chunk.life = lifeTimer;
+        return chunk.modCount;
+    }
+
     /**
      * Gets all the cached rail pieces available at the position in a rail state
-     * 
+     *
      * @param state
-     * @return list of valid rails at the state's block position
+     * @return list of valid rails at the state's block position, {@link #NO_RAILS} if it is
+     *         known no rails exist, or an empty array if this is unknown
      */
     public static RailPiece[] find(RailState state) {
-        try (LookupKey posBlockKey = LOOKUP_KEY.lock(state)) {
-            return lookupInfo(posBlockKey);
+        RailPath.Position railPosition = state.position();
+        if (railPosition.relative) {
+            Block railBlock = state.railBlock();
+            return lookupInfo(railBlock.getWorld(),
+                    railBlock.getX() + MathUtil.floor(railPosition.posX),
+                    railBlock.getY() + MathUtil.floor(railPosition.posY),
+                    railBlock.getZ() + MathUtil.floor(railPosition.posZ));
+        } else {
+            return lookupInfo(state.railWorld(),
+                    MathUtil.floor(railPosition.posX),
+                    MathUtil.floor(railPosition.posY),
+                    MathUtil.floor(railPosition.posZ));
         }
     }
 
     /**
      * Gets all the cached rail pieces available at a particular block position
-     * 
+     *
      * @param posBlock
-     * @return list of valid rails at a block position
+     * @return list of valid rails at a block position, {@link #NO_RAILS} if it is
+     *         known no rails exist, or an empty array if this is unknown
      */
     public static RailPiece[] find(Block blockPosition) {
-        try (LookupKey posBlockKey = LOOKUP_KEY.lock(blockPosition)) {
-            return lookupInfo(posBlockKey);
-        }
+        return lookupInfo(blockPosition.getWorld(), blockPosition.getX(), blockPosition.getY(), blockPosition.getZ());
     }
 
-    private static RailPiece[] lookupInfo(LookupKey key) {
-        Value cached = cache.get(key);
+    private static RailPiece[] lookupInfo(World world, int x, int y, int z) {
+        ChunkCache chunk = getChunk(world, x >> 4, z >> 4, false);
+        if (chunk == null) {
+            return EMPTY_INFO; // No rails
+        }
+
+        long key = blockKey(x, y, z);
+        Value cached = chunk.values.get(key);
         if (cached == null) {
             return EMPTY_INFO; // No rails
         }
 
-        // Verify if needed
-        if (cached.life < lifeTimer) {
+        chunk.life = lifeTimer;
+        cached.life = lifeTimer;
+
+        // Verify if blocks changed nearby, or the entry wasn't verified in a while
+        int columnModCount = chunk.columnModCounts[columnIndex(x, z)];
+        if (cached.modCount != columnModCount || (lifeTimer - cached.verified) >= TCConfig.railCacheVerifyInterval) {
+            // Rails could have been placed where there were none before. Look them up again.
+            if (cached.info == NO_RAILS) {
+                chunk.values.remove(key);
+                return EMPTY_INFO;
+            }
+
             // Verify that all stored rails types are actually still valid (the rails exists)
             // It is incredibly rare that the rails stops existing, so make this as fast as possible!
             // Hence we use an array instead of a list because why not?
@@ -75,33 +221,74 @@ public class RailPieceCache {
                 try {
                     // Verify rail exists
                     if (!info.type().isRail(info.block())) {
-                        cache.remove(key);
+                        chunk.values.remove(key);
                         return EMPTY_INFO; // Invalid
                     }
 
                     // Verify signs exist
                     info.verifySigns();
                 } catch (Throwable t) {
-                    cache.remove(key);
+                    chunk.values.remove(key);
                     RailType.handleCriticalError(info.type(), t);
                     return EMPTY_INFO; // Error
                 }
             }
 
-            // Still good. Reset life so that we don't do this check upon the next invocation.
-            cached.life = lifeTimer;
+            // Still good. Don't do this check again until something changes.
+            cached.modCount = columnModCount;
+            cached.verified = lifeTimer;
         }
 
         return cached.info;
     }
 
     public static void storeInfo(Block block, RailPiece[] info) {
-        cache.put(new Key(block), new Value(info, lifeTimer));
+        ChunkCache chunk = getChunk(block.getWorld(), block.getX() >> 4, block.getZ() >> 4, true);
+        Value value = new Value(chunk, blockKey(block.getX(), block.getY(), block.getZ()), info, lifeTimer);
+        value.modCount = chunk.columnModCounts[columnIndex(block.getX(), block.getZ())];
+        chunk.values.put(value.key, value);
+        chunk.life = lifeTimer;
+        if (temporaryMode) {
+            temporaryValues.add(value);
+            if (temporaryValues.size() > MAX_TEMPORARY_ENTRIES) {
+                removeTemporary(temporaryValues.poll());
+            }
+        }
+    }
+
+    /**
+     * Starts temporary mode. All rail information stored while in temporary mode is
+     * removed again when {@link #endTemporary()} is called. At most a limited number of
+     * temporary entries are kept at one time. This is used by the path finder, which visits
+     * a lot of rails only once, to avoid polluting the cache used by trains.
+     */
+    public static void beginTemporary() {
+        temporaryMode = true;
+    }
+
+    /**
+     * Ends temporary mode, removing all the temporary rail information that was stored
+     * since {@link #beginTemporary()} was called.
+     */
+    public static void endTemporary() {
+        temporaryMode = false;
+        Value value;
+        while ((value = temporaryValues.poll()) != null) {
+            removeTemporary(value);
+        }
+    }
+
+    private static void removeTemporary(Value value) {
+        if (value.chunk.values.get(value.key) == value) {
+            value.chunk.values.remove(value.key);
+        }
     }
 
     // removes all cached rails, forcing a global recalculation
     public static void reset() {
-        cache.clear();
+        worlds.clear();
+        temporaryValues.clear();
+        lastWorld = null;
     }
 
     /**
@@ -109,157 +296,126 @@ public class RailPieceCache {
      * Called from {@link RailSignCache#reset()}
      */
     protected static void resetSigns() {
-        for (Value value : cache.values()) {
-            for (RailPiece info : value.info) {
-                info.refreshSigns();
+        for (WorldCache worldCache : worlds.values()) {
+            for (ChunkCache chunk : worldCache.chunks.getValues()) {
+                for (Value value : chunk.values.getValues()) {
+                    for (RailPiece info : value.info) {
+                        info.refreshSigns();
+                    }
+                }
             }
         }
     }
 
     // cleans up cached rail types that haven't been accessed in quite a while
+    // chunks that were not accessed at all are dropped entirely, and the individual
+    // entries of the chunks that were are only checked once every MAX_LIFE ticks
     public static void update() {
-        int dead = lifeTimer - 20;
-        Iterator<Value> iter = cache.values().iterator();
-        while (iter.hasNext()) {
-            if (iter.next().life < dead) {
-                iter.remove();
+        int dead = lifeTimer - MAX_LIFE;
+        for (WorldCache worldCache : worlds.values()) {
+            for (ChunkCache chunk : worldCache.chunks.getValues()) {
+                if (chunk.life < dead || chunk.values.size() == 0) {
+                    deadChunks.add(chunk);
+                } else if (chunk.nextCleanup <= lifeTimer) {
+                    chunk.nextCleanup = lifeTimer + MAX_LIFE;
+                    for (Value value : chunk.values.getValues()) {
+                        if (value.life < dead) {
+                            deadValues.add(value);
+                        }
+                    }
+                    for (Value value : deadValues) {
+                        chunk.values.remove(value.key);
+                    }
+                    deadValues.clear();
+                }
+            }
+            for (ChunkCache chunk : deadChunks) {
+                worldCache.chunks.remove(chunk.key);
             }
+            deadChunks.clear();
         }
 
         lifeTimer++;
     }
 
-    // Value object used in the hashmap, mapped by block, storing all rail information
-    private static final class Value {
-        public final RailPiece[] info;
-        public int life; // for automatic purging
-
-        public Value(RailPiece[] info, int life) {
-            this.info = info;
-            this.life = life;
-        }
-    }
-
-    // Used for get/remove operations, to avoid creating a new key
-    private static final class LookupKey extends Key implements AutoCloseable {
-        private boolean locked;
-
-        public LookupKey() {
-            super(null, 0, 0, 0);
-            this.locked = false;
-        }
-
-        /**
-         * Locks the lookup key with a new lookup value.
-         * The returned key can be used for lookup.
-         * If this key was already locked, another key is used instead.
-         * 
-         * @param state
-         * @return key
-         */
-        public LookupKey lock(RailState state) {
-            RailPath.Position railPosition = state.position();
-            if (railPosition.relative) {
-                Block railBlock = state.railBlock();
-                return lock(railBlock.getWorld(),
-                        railBlock.getX() + MathUtil.floor(railPosition.posX),
-                        railBlock.getY() + MathUtil.floor(railPosition.posY),
-                        railBlock.getZ() + MathUtil.floor(railPosition.posZ));
-            } else {
-                return lock(state.railWorld(),
-                        MathUtil.floor(railPosition.posX),
-                        MathUtil.floor(railPosition.posY),
-                        MathUtil.floor(railPosition.posZ));
-            }
-        }
-
-        /**
-         * Locks the lookup key with a new lookup value.
-         * The returned key can be used for lookup.
-         * If this key was already locked, another key is used instead.
-         * 
-         * @param block
-         * @return key
-         */
-        public LookupKey lock(Block block) {
-            return lock(block.getWorld(), block.getX(), block.getY(), block.getZ());
-        }
-
-        /**
-         * Locks the lookup key with a new lookup value.
-         * The returned key can be used for lookup.
-         * If this key was already locked, another key is used instead.
-         * 
-         * @param world of the block
-         * @param x - coordinate of the block
-         * @param y - coordinate of the block
-         * @param z - coordinate of the block
-         * @return key
-         */
-        public LookupKey lock(World world, int x, int y, int z) {
-            if (this.locked) {
-                LookupKey key = new LookupKey();
-                key.locked = true;
-                key.load(world, x, y, z);
-                return key;
-            } else {
-                this.locked = true;
-                this.load(world, x, y, z);
-                return this;
+    private static ChunkCache getChunk(World world, int cx, int cz, boolean create) {
+        WorldCache worldCache = lastWorld;
+        if (worldCache == null || worldCache.world != world) {
+            worldCache = worlds.get(world);
+            if (worldCache == null) {
+                if (!create) {
+                    return null;
+                }
+                worldCache = new WorldCache(world);
+                worlds.put(world, worldCache);
             }
+            lastWorld = worldCache;
         }
 
-        @Override
-        public void close() {
-            this.locked = false;
+        long key = MathUtil.longHashToLong(cx, cz);
+        ChunkCache chunk = worldCache.chunks.get(key);
+        if (chunk == null && create) {
+            chunk = new ChunkCache(key);
+            chunk.nextCleanup = lifeTimer + MAX_LIFE;
+            chunk.modCount = ++changeCounter;
+            worldCache.chunks.put(key, chunk);
         }
+        return chunk;
     }
 
-    // Key object used in the hashmap for mapping by Block
-    private static class Key implements Cloneable {
-        public World world;
-        public int x, y, z;
+    // Packs block coordinates into a key unique within the chunk the block is in
+    private static long blockKey(int x, int y, int z) {
+        return ((long) y << 8) | columnIndex(x, z);
+    }
 
-        public Key(Block block) {
-            this(block.getWorld(), block.getX(), block.getY(), block.getZ());
-        }
+    // Index of a block column within the chunk the block is in
+    private static int columnIndex(int x, int z) {
+        return ((x & 0xF) << 4) | (z & 0xF);
+    }
 
-        public Key(World world, int x, int y, int z) {
-            this.world = world;
-            this.x = x;
-            this.y = y;
-            this.z = z;
-        }
+    // All cached rail information of a single world
+    private static final class WorldCache {
+        public final World world;
+        public final LongHashMap<ChunkCache> chunks;
 
-        public final void load(World world, int x, int y, int z) {
+        public WorldCache(World world) {
             this.world = world;
-            this.x = x;
-            this.y = y;
-            this.z = z;
+            this.chunks = new LongHashMap<ChunkCache>();
         }
+    }
 
-        @Override
-        public final int hashCode() {
-            int hash = 17;
-            hash = hash * 31 + System.identityHashCode(world);
-            hash = hash * 31 + x;
-            hash = hash * 31 + y;
-            hash = hash * 31 + z;
-            return hash;
+    // All cached rail information of positions inside a single chunk
+    private static final class ChunkCache {
+        public final long key;
+        public final LongHashMap<Value> values;
+        public int life; // last time any information in this chunk was accessed
+        public int nextCleanup; // next time entries that are no longer used are removed
+        public int modCount; // changed when blocks change in or near this chunk, unique for all chunks
+        public final int[] columnModCounts = new int[256]; // incremented when blocks change in or near a column
+
+        public ChunkCache(long key) {
+            this.key = key;
+            this.values = new LongHashMap<Value>();
+            this.life = lifeTimer;
         }
+    }
 
-        @Override
-        public final boolean equals(Object o) {
-            Key other = (Key) o;
-            return this.x == other.x &&
-                   this.y == other.y &&
-                   this.z == other.z &&
-                   this.world == other.world;
-        }
+    // Value object stored in the chunk, mapped by block, storing all rail information
+    private static final class Value {
+        public final ChunkCache chunk;
+        public final long key;
+        public final RailPiece[] info;
+        public int life; // for automatic purging
+        public int verified; // last time the information was verified
+        public int modCount; // modification counter of the block column when last verified
 
-        @Override
-        public final Key clone() {
-            return new Key(this.world, this.x, this.y, this.z);
+        public Value(ChunkCache chunk, long key, RailPiece[] info, int life) {
+            this.chunk = chunk;
+            this.key = key;
+            this.info = info;
+            this.life = life;
+            this.verified = life;
+            this.modCount = 0;
         }
     }
 }
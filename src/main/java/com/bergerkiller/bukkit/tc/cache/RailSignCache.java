@@ -18,9 +18,11 @@ import com.bergerkiller.bukkit.common.utils.FaceUtil;
 import com.bergerkiller.bukkit.common.utils.MaterialUtil;
 import com.bergerkiller.bukkit.common.utils.WorldUtil;
 import com.bergerkiller.bukkit.common.wrappers.BlockData;
+import com.bergerkiller.bukkit.tc.SignActionHeader;
 import com.bergerkiller.bukkit.tc.Util;
 import com.bergerkiller.bukkit.tc.controller.components.RailPiece;
 import com.bergerkiller.bukkit.tc.rails.type.RailType;
+import com.bergerkiller.bukkit.tc.signactions.SignAction;
 
 /**
  * Caches and searches for signs below rails blocks in the order in which they should be executed.
@@ -230,7 +232,10 @@ public class RailSignCache {
     }
 
     /**
-     * A single sign that is tracked
+     * A single sign that is tracked. Besides the sign itself, the parsed header and the
+     * sign actions that can match the sign are stored, so that these do not have to be computed
+     * again every time a train passes the sign. Tracked signs are discarded when signs change,
+     * which discards this information as well.
      */
     public static class TrackedSign {
         public final Sign sign;
@@ -238,6 +243,9 @@ public class RailSignCache {
         public final RailPiece rail;
         public final RailType railType;
         public final Block railBlock;
+        private SignActionHeader header = null;
+        private SignAction[] actions = null;
+        private int actionsVersion = 0;
 
         public TrackedSign(Block signBlock, RailPiece rail) {
             this.sign = BlockUtil.getSign(signBlock);
@@ -247,6 +255,58 @@ public class RailSignCache {
             this.railBlock = rail.block();
         }
 
+        /**
+         * Gets the header of this sign, parsed from the first line of the sign.
+         * The header is only parsed once. If the header was in a legacy format,
+         * the first line of the sign is converted to the new format.
+         *
+         * @return sign header
+         */
+        public SignActionHeader getHeader() {
+            if (this.header == null) {
+                if (this.sign == null) {
+                    this.header = SignActionHeader.parse(null);
+                } else {
+                    this.header = SignActionHeader.parseFromSign(this.sign);
+                    if (this.header.isLegacyConverted() && this.header.isValid()) {
+                        this.sign.setLine(0, this.header.toString());
+                        this.sign.update(true);
+                    }
+                }
+            }
+            return this.header;
+        }
+
+        /**
+         * Gets the sign actions that can match this sign, stored using {@link #setActions(SignAction[], int)}
+         *
+         * @param version of the registered sign actions
+         * @return sign actions, or null if not stored or the version differs
+         */
+        public SignAction[] getActions(int version) {
+            return (this.actionsVersion == version) ? this.actions : null;
+        }
+
+        /**
+         * Stores the sign actions that can match this sign
+         *
+         * @param actions that can match
+         * @param version of the registered sign actions
+         */
+        public void setActions(SignAction[] actions, int version) {
+            this.actions = actions;
+            this.actionsVersion = version;
+        }
+
+        /**
+         * Discards the parsed header and matched sign actions, because the text of
+         * the sign was changed.
+         */
+        public void invalidate() {
+            this.header = null;
+            this.actions = null;
+        }
+
         @Override
         public int hashCode() {
             return this.signBlock.hashCode();
@@ -24,6 +24,7 @@ import com.bergerkiller.bukkit.tc.attachments.ui.SetValueTarget;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroup;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroupStore;
 import com.bergerkiller.bukkit.tc.controller.MinecartMember;
+import com.bergerkiller.bukkit.tc.controller.components.PerformanceTracker;
 import com.bergerkiller.bukkit.tc.debug.DebugTool;
 import com.bergerkiller.bukkit.tc.editor.TCMapControl;
 import com.bergerkiller.bukkit.tc.events.SignActionEvent;
@@ -54,9 +55,11 @@ import org.bukkit.util.Vector;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 
 public class GlobalCommands {
@@ -409,6 +412,14 @@ public class GlobalCommands {
                 }
             }
             return true;
+        } else if (args[0].equals("perf")) {
+            Permission.COMMAND_PERF.handle(sender);
+            int count = 10;
+            if (args.length >= 3 && args[1].equals("top")) {
+                count = ParseUtil.parseInt(args[2], count);
+            }
+            listPerformance(sender, count);
+            return true;
         } else if (args[0].equals("issue")) {
             Permission.COMMAND_ISSUE.handle(sender);
             if(sender instanceof Player){
@@ -681,6 +692,41 @@ public class GlobalCommands {
         builder.send(sender);
     }
 
+    public static void listPerformance(CommandSender sender, int count) {
+        List<MinecartGroup> groups = new ArrayList<MinecartGroup>();
+        for (MinecartGroup group : MinecartGroupStore.getGroups()) {
+            groups.add(group);
+        }
+        if (groups.isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + "There are no trains on this server");
+            return;
+        }
+        Collections.sort(groups, (a, b) -> Long.compare(b.getPerformance().getAverageTotal(),
+                                                        a.getPerformance().getAverageTotal()));
+
+        MessageBuilder builder = new MessageBuilder();
+        builder.yellow("Most expensive trains (average / max per tick over the last ");
+        builder.yellow(PerformanceTracker.HISTORY_SIZE).yellow(" ticks):");
+        for (int i = 0; i < count && i < groups.size(); i++) {
+            MinecartGroup group = groups.get(i);
+            PerformanceTracker perf = group.getPerformance();
+            builder.newLine().white(i + 1).white(". ").green(group.getProperties().getTrainName());
+            builder.white(": ").yellow(formatNanos(perf.getAverageTotal()));
+            builder.white(" / ").yellow(formatNanos(perf.getMaxTotal()));
+            builder.newLine().white("    ");
+            for (PerformanceTracker.Section section : PerformanceTracker.Section.values()) {
+                builder.gray(section.name().toLowerCase(Locale.ENGLISH)).gray("=");
+                builder.white(formatNanos(perf.getAverage(section))).white(" ");
+            }
+            builder.gray("packets=").white(perf.getAveragePackets()).white(" / ").white(perf.getMaxPackets());
+        }
+        builder.send(sender);
+    }
+
+    private static String formatNanos(long nanos) {
+        return MathUtil.round((double) nanos / 1000000.0, 3) + "ms";
+    }
+
     public static void listTrains(CommandSender sender, String statement) {
         MessageBuilder builder = new MessageBuilder();
         if (sender instanceof Player) {
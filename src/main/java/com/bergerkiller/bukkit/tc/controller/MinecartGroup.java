@@ -25,10 +25,14 @@ import com.bergerkiller.bukkit.tc.TCTimings;
 import com.bergerkiller.bukkit.tc.TrainCarts;
 import com.bergerkiller.bukkit.tc.Util;
 import com.bergerkiller.bukkit.tc.attachments.animation.AnimationOptions;
+import com.bergerkiller.bukkit.tc.cache.GroupChunkCache;
+import com.bergerkiller.bukkit.tc.cache.PlayerChunkCache;
 import com.bergerkiller.bukkit.tc.cache.RailMemberCache;
 import com.bergerkiller.bukkit.tc.controller.components.ActionTrackerGroup;
+import com.bergerkiller.bukkit.tc.controller.components.PerformanceTracker;
 import com.bergerkiller.bukkit.tc.controller.components.SignTrackerGroup;
 import com.bergerkiller.bukkit.tc.controller.components.RailPath;
+import com.bergerkiller.bukkit.tc.controller.components.RailState;
 import com.bergerkiller.bukkit.tc.controller.components.RailTrackerGroup;
 import com.bergerkiller.bukkit.tc.controller.type.MinecartMemberChest;
 import com.bergerkiller.bukkit.tc.controller.type.MinecartMemberFurnace;
@@ -43,6 +47,7 @@ import com.bergerkiller.bukkit.tc.signactions.mutex.MutexZoneCache;
 import com.bergerkiller.bukkit.tc.storage.OfflineGroupManager;
 import com.bergerkiller.bukkit.tc.utils.ChunkArea;
 import com.bergerkiller.bukkit.tc.utils.SlowdownMode;
+import com.bergerkiller.bukkit.tc.utils.TrackLookAhead;
 import com.bergerkiller.bukkit.tc.utils.TrackWalkingPoint;
 import com.bergerkiller.generated.net.minecraft.server.ChunkHandle;
 
@@ -53,7 +58,6 @@ import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.EntityType;
 import org.bukkit.inventory.Inventory;
-import org.bukkit.util.Vector;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -67,6 +71,7 @@ import java.util.logging.Level;
 public class MinecartGroup extends MinecartGroupStore implements IPropertiesHolder {
     private static final long serialVersionUID = 3;
     private static final LongHashSet chunksBuffer = new LongHashSet(50);
+    private static final int CHUNK_UPDATE_STEP_INTERVAL = 10; // 10 update steps of at most 0.4 blocks
     protected final ToggledState networkInvalid = new ToggledState();
     protected final ToggledState ticked = new ToggledState();
     protected final ChunkArea chunkArea = new ChunkArea();
@@ -74,13 +79,20 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
     private final SignTrackerGroup signTracker = new SignTrackerGroup(this);
     private final RailTrackerGroup railTracker = new RailTrackerGroup(this);
     private final ActionTrackerGroup actionTracker = new ActionTrackerGroup(this);
+    private final PerformanceTracker performanceTracker = new PerformanceTracker(this);
+    private final TrackLookAhead lookAhead = new TrackLookAhead();
+    private final RailState lookAheadState = new RailState();
     protected long lastSync = Long.MIN_VALUE;
     private TrainProperties prop = null;
     private boolean breakPhysics = false;
     private int teleportImmunityTick = 0;
     private double updateSpeedFactor = 1.0;
     private int updateStepCount = 1;
+    private int updateStepsPerTick = 1;
     private int updateStepNr = 1;
+    private double speedAheadOfTick = Double.MAX_VALUE;
+    private boolean speedAheadOfTickValid = false;
+    private int skippedTicks = 0;
     private boolean unloaded = false;
 
     protected MinecartGroup() {
@@ -173,6 +185,15 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         return this.railTracker;
     }
 
+    /**
+     * Gets the Performance Tracker that keeps track of the time spent updating this train
+     *
+     * @return performance tracker
+     */
+    public PerformanceTracker getPerformance() {
+        return this.performanceTracker;
+    }
+
     public MinecartMember<?> head(int index) {
         return this.get(index);
     }
@@ -251,6 +272,7 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
 
     private void addMember(MinecartMember<?> member) {
         this.chunkAreaValid = false;
+        GroupChunkCache.markOutdated(this);
         notifyPhysicsChange();
         member.setGroup(this);
         this.getSignTracker().updatePosition();
@@ -354,6 +376,7 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
 
     private MinecartMember<?> removeMember(int index) {
         this.chunkAreaValid = false;
+        GroupChunkCache.markOutdated(this);
         notifyPhysicsChange();
         MinecartMember<?> member = super.get(index);
         MemberRemoveEvent.call(member);
@@ -455,6 +478,7 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         GroupRemoveEvent.call(this);
         this.clear();
         this.updateChunkInformation();
+        GroupChunkCache.remove(this, this.chunkArea);
         this.chunkArea.reset();
         if (this.prop != null) {
             TrainPropertiesStore.remove(this.prop.getTrainName());
@@ -505,6 +529,9 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         // Unload in detector regions
         getSignTracker().unload();
 
+        // No longer track the chunks of this group
+        GroupChunkCache.remove(this, this.chunkArea);
+
         // Store the group offline
         OfflineGroupManager.storeGroup(this);
 
@@ -1051,8 +1078,10 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
     }
 
     /**
-     * Gets the total number of physics updates performed per tick. See also the information
-     * of {@link #getUpdateSpeedFactor()}.
+     * Gets the total number of physics updates performed this server tick. See also the information
+     * of {@link #getUpdateSpeedFactor()}. When the train is updated at a reduced tick rate, multiple
+     * ticks are simulated at once, and this is the step count of all simulated ticks combined.
+     * Use {@link #getUpdateStepsPerTick()} for the number of steps of a single simulated tick.
      * 
      * @return update step count (normally 1)
      */
@@ -1060,6 +1089,17 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         return this.updateStepCount;
     }
 
+    /**
+     * Gets the number of physics updates performed for a single simulated tick.
+     * This is equal to {@link #getUpdateStepCount()} unless multiple ticks are simulated
+     * at once, because the train is updated at a reduced tick rate.
+     * 
+     * @return update step count of a single tick (normally 1)
+     */
+    public int getUpdateStepsPerTick() {
+        return this.updateStepsPerTick;
+    }
+
     /**
      * Gets whether the currently executing updates are the final update step.
      * See {@link #getUpdateSpeedFactor()} for an explanation of what this means.
@@ -1175,6 +1215,7 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             // Refresh the chunk area tracker using this information
             this.chunkArea.refresh(this.getWorld(), this.loadChunksBuffer());
             this.chunkAreaValid = true;
+            GroupChunkCache.update(this, this.chunkArea);
 
             // Keep-chunks-loaded or automatic unloading when moving into unloaded chunks
             if (canUnload) {
@@ -1261,12 +1302,17 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         double checkDistance = Math.max(mutexDistance, waitDistance);
 
         UUID worldUUID = this.getWorld().getUID();
-        TrackWalkingPoint iter = new TrackWalkingPoint(this.head().discoverRail());
-        while (iter.movedTotal <= checkDistance && iter.moveFull()) {
+        TrackLookAhead lookAhead = this.lookAhead;
+        this.head().discoverRail(this.lookAheadState);
+        lookAhead.update(this.lookAheadState);
+        TrackLookAhead.Entry rail;
+        double movedTotal = 0.0;
+        for (int railIndex = 0; movedTotal <= checkDistance && (rail = lookAhead.get(railIndex)) != null; railIndex++) {
+            movedTotal = lookAhead.getDistance(rail);
 
             // Check for mutex zones the next block. If one is found that is occupied, stop right away
-            if (iter.movedTotal <= mutexDistance) {
-                MutexZone zone = MutexZoneCache.find(worldUUID, new IntVector3(iter.state.railBlock()));
+            if (movedTotal <= mutexDistance) {
+                MutexZone zone = MutexZoneCache.find(worldUUID, rail.railBlock);
                 if (zone != null && !zone.slot.tryEnter(this)) {
                     return 0.0;
                 }
@@ -1282,44 +1328,33 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             }
 
             // Check all other minecarts on the same rails to see if they are too close
-            Location state_position = null;
-            Location member_position = null;
             double minSpeedAhead = Double.MAX_VALUE;
-            for (MinecartMember<?> member : RailMemberCache.findAll(iter.state.railBlock())) {
+            for (MinecartMember<?> member : RailMemberCache.findAll(rail.railBlock)) {
                 if (member.getGroup() == this) {
                     continue;
                 }
 
-                // Retrieve & re-use (readonly)
-                if (state_position == null) {
-                    state_position = iter.state.positionLocation();
-                }
-
-                // Member center position & re-use (readonly)
-                if (member_position == null) {
-                    member_position = member.getEntity().getLocation();
-                } else {
-                    member.getEntity().getLocation(member_position);
-                }
+                // Member center position (readonly)
+                CommonEntity<?> memberEntity = member.getEntity();
+                double memberX = memberEntity.loc.getX();
+                double memberY = memberEntity.loc.getY();
+                double memberZ = memberEntity.loc.getZ();
 
                 // Is the minecart 'in front' of the current position on the rails, or behind us?
                 // This is important when iterating over the first track only, because then this is not guaranteed
-                if (iter.movedTotal == 0.0) {
-                    Vector delta = new Vector(member_position.getX() - state_position.getX(),
-                                              member_position.getY() - state_position.getY(),
-                                              member_position.getZ() - state_position.getZ());
-                    if (delta.dot(iter.state.motionVector()) < 0.0) {
+                if (movedTotal == 0.0) {
+                    if (rail.motDot(memberX - rail.posX, memberY - rail.posY, memberZ - rail.posZ) < 0.0) {
                         continue;
                     }
                 }
 
                 // Compute distance from the current rail position to the 'edge' of the minecart.
                 // This is basically the distance to center, with half the length of the minecart subtracted.
-                double distanceToMember = member_position.distance(state_position) -
-                                          (double) member.getEntity().getWidth() * 0.5;
+                double distanceToMember = rail.distance(memberX, memberY, memberZ) -
+                                          (double) memberEntity.getWidth() * 0.5;
 
                 // Find the distance we can still move from our current position
-                double remaining = ((iter.movedTotal + distanceToMember) - waitDistance);
+                double remaining = ((movedTotal + distanceToMember) - waitDistance);
 
                 // Allow for 2-block distance until slowing down
                 final double MIN_DISTANCE = 2.0;
@@ -1328,11 +1363,11 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
                 }
 
                 // Movement speed of the minecart, taking maximum speed into account
-                Vector member_velocity = member.getEntity().getVelocity();
-                double otherSpeed = MathUtil.clamp(member_velocity.length(), member.getEntity().getMaxSpeed());
+                VectorAbstract member_velocity = memberEntity.vel;
+                double otherSpeed = MathUtil.clamp(member_velocity.length(), memberEntity.getMaxSpeed());
 
                 // If moving towards me, stop right away! When barely moving, ignore this check.
-                if (otherSpeed > 1e-6 && iter.state.position().motDot(member_velocity) < 0.0) {
+                if (otherSpeed > 1e-6 && rail.motDot(member_velocity.getX(), member_velocity.getY(), member_velocity.getZ()) < 0.0) {
                     return 0.0;
                 }
 
@@ -1369,6 +1404,14 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         }
     }
 
+    /**
+     * Performs the physics update of this train for a single tick. This is normally called
+     * while the server ticks the entity of the head cart.<br>
+     * <br>
+     * This must be called on the main thread. Besides moving the carts, which accesses the
+     * blocks and entities of the world, the update calls events and sign actions throughout
+     * every update step, and the outcome of those decides how the train moves further.
+     */
     public void doPhysics() {
         // NOP if unloaded
         if (this.isUnloaded()) {
@@ -1437,17 +1480,30 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             return;
         }
 
+        // Trains without players nearby are updated less often. The ticks skipped are
+        // then simulated in one go, moving the train further using more update steps.
+        // When an action is given to the train meanwhile, the skipped ticks are simulated right away.
+        if (this.skippedTicks > 0 || this.canReduceTickRate()) {
+            if (++this.skippedTicks < TCConfig.reducedTickRateInterval && !this.getActions().hasAction()) {
+                return;
+            }
+        }
+        int tickCount = Math.max(1, this.skippedTicks);
+        this.skippedTicks = 0;
+
         try {
             double totalforce = this.getAverageForce();
             double speedlimit = this.getProperties().getSpeedLimit();
             if (totalforce > 0.4 && speedlimit > 0.4) {
-                this.updateStepCount = (int) Math.ceil(speedlimit / 0.4);
-                this.updateSpeedFactor = 1.0 / (double) this.updateStepCount;
+                this.updateStepsPerTick = (int) Math.ceil(speedlimit / 0.4);
+                this.updateSpeedFactor = 1.0 / (double) this.updateStepsPerTick;
             } else {
-                this.updateStepCount = 1;
+                this.updateStepsPerTick = 1;
                 this.updateSpeedFactor = 1.0;
             }
+            this.updateStepCount = tickCount * this.updateStepsPerTick;
 
+            long physicsStartTime = this.performanceTracker.start();
             try (Timings t = TCTimings.GROUP_DOPHYSICS.start()) {
                 // Perform the physics changes
                 if (this.updateStepCount > 1) {
@@ -1456,9 +1512,16 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
                     }
                 }
                 for (int i = 1; i <= this.updateStepCount; i++) {
+                    // The speed ahead limits the distance moved during one tick, so when
+                    // multiple ticks are simulated, it is calculated again for every tick
+                    if (((i - 1) % this.updateStepsPerTick) == 0) {
+                        this.speedAheadOfTickValid = false;
+                    }
                     this.updateStepNr = i;
                     while (!this.doPhysics_step());
                 }
+            } finally {
+                this.performanceTracker.stop(PerformanceTracker.Section.PHYSICS, physicsStartTime);
             }
 
             // Restore velocity / max speed to what is exposed outside the physics function
@@ -1496,6 +1559,44 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         }
     }
 
+    /**
+     * Checks whether this train can be updated less often, because no player is nearby,
+     * and the train is not doing anything that must be updated every tick.
+     *
+     * @return True if the tick rate can be reduced
+     */
+    private boolean canReduceTickRate() {
+        if (TCConfig.reducedTickRateInterval <= 1 || !this.chunkAreaValid) {
+            return false;
+        }
+        if (this.getActions().hasAction() || this.getSignTracker().hasSigns()) {
+            return false;
+        }
+        World world = this.getWorld();
+        if (world == null) {
+            return false;
+        }
+        int[] playerChunks = PlayerChunkCache.getChunks(world);
+        if (playerChunks.length == 0) {
+            return true;
+        }
+        int distance = TCConfig.reducedTickRateDistance;
+        LongIterator chunkIter = this.chunkArea.getAllCenters().longIterator();
+        while (chunkIter.hasNext()) {
+            long chunk = chunkIter.next();
+            int chunkX = MathUtil.longHashMsw(chunk);
+            int chunkZ = MathUtil.longHashLsw(chunk);
+            for (int i = 0; i < playerChunks.length; i += 2) {
+                if (Math.abs(chunkX - playerChunks[i]) <= distance &&
+                    Math.abs(chunkZ - playerChunks[i + 1]) <= distance)
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     private boolean doPhysics_step() throws GroupUnloadedException {
         this.breakPhysics = false;
         try {
@@ -1579,8 +1680,16 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
 
             // If a wait distance is set, check for trains ahead of the track and wait for those
             // We do the waiting by setting the max speed of the train (NOT speed limit!) to match that train's speed
+            // The speed ahead is the speed in blocks/tick allowed for the entire tick, so it is only
+            // calculated once per tick, and not again for every update step.
             try (Timings t = TCTimings.GROUP_ENFORCE_SPEEDAHEAD.start()) {
-                double speedAhead = this.getSpeedAhead(this.getProperties().getWaitDistance());
+                if (!this.speedAheadOfTickValid) {
+                    long speedAheadStartTime = this.performanceTracker.start();
+                    this.speedAheadOfTick = this.getSpeedAhead(this.getProperties().getWaitDistance());
+                    this.speedAheadOfTickValid = true;
+                    this.performanceTracker.stop(PerformanceTracker.Section.SPEED_AHEAD, speedAheadStartTime);
+                }
+                double speedAhead = this.speedAheadOfTick;
                 double newSpeedLimit = Math.min(this.getProperties().getSpeedLimit(), speedAhead);
                 if (newSpeedLimit < this.getProperties().getSpeedLimit()) {
                     speedLimitClamped = MathUtil.clamp(newSpeedLimit * this.updateSpeedFactor, 0.4);
@@ -1668,7 +1777,11 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             }
 
             // Refresh chunks
-            this.updateChunkInformation();
+            // Trains only move a few blocks in between, while the chunk area extends
+            // two chunks around every cart, so this does not have to happen every update step
+            if (this.isLastUpdateStep() || (this.updateStepNr % CHUNK_UPDATE_STEP_INTERVAL) == 0) {
+                this.updateChunkInformation();
+            }
 
             // Refresh wheel position information, important to do it AFTER updateDirection()
             this.updateWheels();
@@ -107,6 +107,7 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
     private final RailTrackerMember railTrackerMember = new RailTrackerMember(this);
     private final WheelTrackerMember wheelTracker = new WheelTrackerMember(this);
     private final ToggledState railActivated = new ToggledState(false);
+    private RailPiece worldPlaceholder = null;
     protected final ToggledState ticked = new ToggledState();
     public boolean vertToSlope = false;
     protected MinecartGroup group;
@@ -899,31 +900,39 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
 
     private final boolean fillRailInformation(RailState state) {
         // Need an initial Rail Block set
-        state.setRailPiece(RailPiece.createWorldPlaceholder(entity.getWorld()));
+        // The placeholder is re-used while the world stays the same
+        World world = entity.getWorld();
+        if (this.worldPlaceholder == null || this.worldPlaceholder.world() != world) {
+            this.worldPlaceholder = RailPiece.createWorldPlaceholder(world);
+        }
+        state.setRailPiece(this.worldPlaceholder);
         state.setMember(this);
         state.position().setMotion(this.calcMotionVector(false));
 
         // No pre-move position? Simply return block at current position.
         if (this.preMovePosition == null) {
-            state.position().setLocation(entity.getLocation());
+            state.position().setLocation(entity.loc);
             return RailType.loadRailInformation(state);
         }
 
         // Detect the movement vector
-        Vector direction = new Vector(entity.loc.getX() - this.preMovePosition.getX(),
-                entity.loc.getY() - this.preMovePosition.getY(), entity.loc.getZ() - this.preMovePosition.getZ());
-        double moved = direction.length();
+        double dx = entity.loc.getX() - this.preMovePosition.getX();
+        double dy = entity.loc.getY() - this.preMovePosition.getY();
+        double dz = entity.loc.getZ() - this.preMovePosition.getZ();
+        double moved = Math.sqrt(dx * dx + dy * dy + dz * dz);
 
         // When distance is too small or too large (teleport), simply use the current
         // position only
         final double smallStep = 1e-7;
         if (moved <= smallStep || moved > MAX_MOVEMENT_STEP) {
-            state.position().setLocation(entity.getLocation());
+            state.position().setLocation(entity.loc);
             return RailType.loadRailInformation(state);
         }
 
         // Normalize direction vector
-        direction.multiply(1.0 / moved);
+        dx /= moved;
+        dy /= moved;
+        dz /= moved;
 
         // Debug: uses walking point to do this instead of the small offset
         /*
@@ -948,17 +957,17 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
         // The pre-move position might contain an outdated block though, so add a very
         // small amount to it in the direction
         // There is a TODO here to use a proper block iterator.
-        Location prePos = new Location(entity.getWorld(), this.preMovePosition.getX() + smallStep * direction.getX(),
-                this.preMovePosition.getY() + smallStep * direction.getY(),
-                this.preMovePosition.getZ() + smallStep * direction.getZ());
-        state.position().setLocation(prePos);
+        state.position().setLocation(entity.loc);
+        state.position().posX = this.preMovePosition.getX() + smallStep * dx;
+        state.position().posY = this.preMovePosition.getY() + smallStep * dy;
+        state.position().posZ = this.preMovePosition.getZ() + smallStep * dz;
         if (RailType.loadRailInformation(state)) {
-            state.position().setLocation(entity.getLocation());
+            state.position().setLocation(entity.loc);
             return true;
         }
 
         // Current position
-        state.position().setLocation(entity.getLocation());
+        state.position().setLocation(entity.loc);
         return RailType.loadRailInformation(state);
     }
 
@@ -970,14 +979,27 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
      * @return rail state
      */
     public RailState discoverRail() {
+        RailState state = new RailState();
+        this.discoverRail(state);
+        return state;
+    }
+
+    /**
+     * Looks at the current position information and attempts to discover any rails
+     * at these positions, storing the result in an existing rail state. This can be
+     * used to re-use the same rail state, instead of creating a new one every time.
+     * See {@link #discoverRail()}.
+     * 
+     * @param state to store the discovered rail state in
+     */
+    public void discoverRail(RailState state) {
         try (Timings t = TCTimings.MEMBER_PHYSICS_DISCOVER_RAIL.start()) {
             // Store motion vector in state
-            RailState state = new RailState();
             state.setMember(this);
             boolean result = this.fillRailInformation(state);
             if (!result) {
                 state.setRailType(RailType.NONE);
-                state.position().setLocation(entity.getLocation());
+                state.position().setLocation(entity.loc);
                 state.setMotionVector(this.calcMotionVector(true));
                 state.initEnterDirection();
             }
@@ -997,8 +1019,6 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
                     path.snap(state.position(), state.railBlock());
                 }
             }
-
-            return state;
         }
     }
 
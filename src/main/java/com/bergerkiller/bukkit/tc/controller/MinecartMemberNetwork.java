@@ -23,6 +23,7 @@ import com.bergerkiller.bukkit.tc.attachments.config.AttachmentModel;
 import com.bergerkiller.bukkit.tc.attachments.config.AttachmentModelOwner;
 import com.bergerkiller.bukkit.tc.attachments.control.CartAttachmentSeat;
 import com.bergerkiller.bukkit.tc.attachments.helper.HelperMethods;
+import com.bergerkiller.bukkit.tc.controller.components.PerformanceTracker;
 import com.bergerkiller.generated.net.minecraft.server.EntityHandle;
 import com.bergerkiller.generated.net.minecraft.server.EntityTrackerEntryHandle;
 
@@ -46,6 +47,8 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
     public static final int ABSOLUTE_UPDATE_INTERVAL = 200;
     public static final double VELOCITY_SOUND_RADIUS = 16;
     public static final double VELOCITY_SOUND_RADIUS_SQUARED = VELOCITY_SOUND_RADIUS * VELOCITY_SOUND_RADIUS;
+    public static final int LOD_UPDATE_INTERVAL = 10;
+    public static final double LOD_DISTANCE_STEP = 2.0;
 
     private MinecartMember<?> member = null;
     private final Set<Player> velocityUpdateReceivers = new HashSet<>();
@@ -53,9 +56,13 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
     private Attachment rootAttachment;
     private List<CartAttachmentSeat> seatAttachments = new ArrayList<CartAttachmentSeat>();
     private Map<Player, SeatHint> seatHints = new HashMap<Player, SeatHint>();
+    private final Map<Player, Double> viewDistances = new HashMap<Player, Double>();
+    private boolean hasLodAttachments = false;
+    private int lodUpdateCounter = 0;
 
     private long animationCurrentTime = 0;
     private double animationDeltaTime = 0.0;
+    private int sentPacketCount = 0;
 
     public MinecartMemberNetwork() {        
         final VectorAbstract velLiveBase = this.velLive;
@@ -99,6 +106,34 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
         return this.getEntity().getWorld();
     }
 
+    @Override
+    public double getViewDistance(Player viewer) {
+        Double viewDistance = this.viewDistances.get(viewer);
+        return (viewDistance == null) ? 0.0 : viewDistance.doubleValue();
+    }
+
+    private double computeViewDistance(Player viewer) {
+        return Math.sqrt(getEntity().loc.distanceSquared(viewer));
+    }
+
+    /**
+     * Refreshes the view distances of all viewers, showing or hiding attachments
+     * when their level-of-detail distance is crossed. To avoid attachments flickering
+     * when a viewer stands near that distance, the view distance is only
+     * updated when it changes by at least {@link #LOD_DISTANCE_STEP}.
+     */
+    private void updateViewDistances() {
+        for (Map.Entry<Player, Double> entry : this.viewDistances.entrySet()) {
+            Player viewer = entry.getKey();
+            double oldViewDistance = entry.getValue().doubleValue();
+            double newViewDistance = this.computeViewDistance(viewer);
+            if (Math.abs(newViewDistance - oldViewDistance) >= LOD_DISTANCE_STEP) {
+                entry.setValue(Double.valueOf(newViewDistance));
+                HelperMethods.updateLodRecursive(this.rootAttachment, true, viewer, oldViewDistance, newViewDistance);
+            }
+        }
+    }
+
     /**
      * Gets the root attachment, representing the (attachments) based model
      * 
@@ -113,6 +148,16 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
         return this.rootAttachment;
     }
 
+    /**
+     * Adds to the number of packets broadcasted by the attachments of this cart.
+     * The packets are counted towards the performance statistics of the train.
+     * 
+     * @param count of packets sent, all viewers combined
+     */
+    public void addSentPackets(int count) {
+        this.sentPacketCount += count;
+    }
+
     /**
      * Gets the delta time in seconds of the current animation frame for the current tick
      * 
@@ -360,7 +405,9 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
             return;
         }
 
-        HelperMethods.makeVisibleRecursive(this.getRootAttachment(), true, viewer);
+        double viewDistance = this.computeViewDistance(viewer);
+        this.viewDistances.put(viewer, Double.valueOf(viewDistance));
+        HelperMethods.makeVisibleRecursive(this.getRootAttachment(), true, viewer, viewDistance);
 
         this.velocityUpdateReceivers.add(viewer);
         this.updateVelocity(viewer);
@@ -371,9 +418,10 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
         //super.makeHidden(viewer, instant);
 
         if (this.rootAttachment != null) {
-            HelperMethods.makeHiddenRecursive(this.rootAttachment, true, viewer);
+            HelperMethods.makeHiddenRecursive(this.rootAttachment, true, viewer, this.getViewDistance(viewer));
         }
 
+        this.viewDistances.remove(viewer);
         this.velocityUpdateReceivers.remove(viewer);
     }
 
@@ -408,55 +456,87 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
             }
 
             // Update the entire group
-            int i;
-            final int count = group.size();
-            MinecartMemberNetwork[] networkControllers = new MinecartMemberNetwork[count];
-            for (i = 0; i < count; i++) {
-                MinecartMember<?> member = group.get(i);
-                EntityNetworkController<?> controller = member.getEntity().getNetworkController();
-                if (!(controller instanceof MinecartMemberNetwork)) {
-                    // This is not good, but we can fix it...but not here
-                    group.networkInvalid.set();
-                    return;
-                }
-                networkControllers[i] = (MinecartMemberNetwork) controller;
-                if (networkControllers[i].member != member) {
-                    networkControllers[i].member = member;
-                }
-                networkControllers[i].tickSelf();
+            long startTime = group.getPerformance().start();
+            try {
+                this.tickGroup(group);
+            } finally {
+                group.getPerformance().stop(PerformanceTracker.Section.NETWORK, startTime);
+
+                // Synchronization is the last update of the train every server tick,
+                // also when physics are skipped, which completes the measurements
+                group.getPerformance().nextTick();
             }
+        } catch (Throwable t) {
+            TrainCarts.plugin.log(Level.SEVERE, "Failed to synchronize a network controller:");
+            TrainCarts.plugin.handle(t);
+        }
+    }
 
-            // Synchronize to the clients
-            if (this.getTicksSinceLocationSync() > ABSOLUTE_UPDATE_INTERVAL) {
-                EntityTrackerEntryHandle.createHandle(this.getHandle()).setTimeSinceLocationSync(0);
+    /**
+     * Updates the attachments of all the members of a group and synchronizes them to the viewers
+     *
+     * @param group to update, of which this controller is the head
+     */
+    private void tickGroup(MinecartGroup group) {
+        int i;
+        final int count = group.size();
+        MinecartMemberNetwork[] networkControllers = new MinecartMemberNetwork[count];
+        for (i = 0; i < count; i++) {
+            MinecartMember<?> member = group.get(i);
+            EntityNetworkController<?> controller = member.getEntity().getNetworkController();
+            if (!(controller instanceof MinecartMemberNetwork)) {
+                // This is not good, but we can fix it...but not here
+                group.networkInvalid.set();
+                return;
+            }
+            networkControllers[i] = (MinecartMemberNetwork) controller;
+            if (networkControllers[i].member != member) {
+                networkControllers[i].member = member;
+            }
+            networkControllers[i].tickSelf();
+        }
+
+        // Synchronize to the clients
+        if (this.getTicksSinceLocationSync() > ABSOLUTE_UPDATE_INTERVAL) {
+            EntityTrackerEntryHandle.createHandle(this.getHandle()).setTimeSinceLocationSync(0);
 
-                // Perform absolute updates
+            // Perform absolute updates
+            syncGroup(group, networkControllers, true);
+        } else {
+            // Perform relative updates
+            boolean needsSync = this.isUpdateTick();
+            if (!needsSync) {
                 for (i = 0; i < count; i++) {
-                    networkControllers[i].syncSelf(true);
-                }
-            } else {
-                // Perform relative updates
-                boolean needsSync = this.isUpdateTick();
-                if (!needsSync) {
-                    for (i = 0; i < count; i++) {
-                        MinecartMemberNetwork controller = networkControllers[i];
-                        if (controller.getEntity().isPositionChanged() || controller.getEntity().getDataWatcher().isChanged() || controller.isPassengersChanged()) {
-                            needsSync = true;
-                            break;
-                        }
-                    }
-                }
-                if (needsSync) {
-                    // Perform actual updates
-                    for (i = 0; i < count; i++) {
-                        networkControllers[i].syncSelf(false);
+                    MinecartMemberNetwork controller = networkControllers[i];
+                    if (controller.getEntity().isPositionChanged() || controller.getEntity().getDataWatcher().isChanged() || controller.isPassengersChanged()) {
+                        needsSync = true;
+                        break;
                     }
                 }
             }
-        } catch (Throwable t) {
-            TrainCarts.plugin.log(Level.SEVERE, "Failed to synchronize a network controller:");
-            TrainCarts.plugin.handle(t);
+            if (needsSync) {
+                // Perform actual updates
+                syncGroup(group, networkControllers, false);
+            }
+        }
+    }
+
+    /**
+     * Synchronizes all the members of a group to the viewers, and counts the number of
+     * packets that were sent doing so.
+     *
+     * @param group to synchronize, of which this controller is the head
+     * @param networkControllers of all the members of the group
+     * @param absolute whether to perform an absolute position update
+     */
+    private void syncGroup(MinecartGroup group, MinecartMemberNetwork[] networkControllers, boolean absolute) {
+        int packetCount = 0;
+        for (MinecartMemberNetwork controller : networkControllers) {
+            controller.syncSelf(absolute);
+            packetCount += controller.sentPacketCount;
+            controller.sentPacketCount = 0;
         }
+        group.getPerformance().addPackets(packetCount);
     }
 
     /**
@@ -496,6 +576,12 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
         try (Timings t = TCTimings.NETWORK_PERFORM_TICK.start()) {
             HelperMethods.perform_onTick(this.rootAttachment);
         }
+
+        // Show or hide attachments for viewers that moved closer or further away
+        if (this.hasLodAttachments && ++this.lodUpdateCounter >= LOD_UPDATE_INTERVAL) {
+            this.lodUpdateCounter = 0;
+            this.updateViewDistances();
+        }
     }
 
     public void syncSelf(boolean absolute) {
@@ -573,7 +659,7 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
         // Detach old attachments - after this viewers see nothing anymore
         if (this.rootAttachment != null) {
             for (Player oldViewer : this.getViewers()) {
-                HelperMethods.makeHiddenRecursive(this.rootAttachment, true, oldViewer);
+                HelperMethods.makeHiddenRecursive(this.rootAttachment, true, oldViewer, this.getViewDistance(oldViewer));
             }
             HelperMethods.perform_onDetached(this.rootAttachment);
             this.rootAttachment = null;
@@ -586,9 +672,10 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
 
         this.seatAttachments.clear();
         this.discoverSeats(this.rootAttachment);
+        this.hasLodAttachments = HelperMethods.hasLodDistanceRecursive(this.rootAttachment);
 
         for (Player viewer : this.getViewers()) {
-            HelperMethods.makeVisibleRecursive(this.rootAttachment, true, viewer);
+            HelperMethods.makeVisibleRecursive(this.rootAttachment, true, viewer, this.getViewDistance(viewer));
         }
 
         // Let all passengers re-enter us
@@ -639,6 +726,13 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
             return;
         }
 
+        // When the level-of-detail distance changes, viewers may have to see different attachments
+        double newLodDistance = config.contains("lodDistance") ? config.get("lodDistance", 0.0) : 0.0;
+        if (newLodDistance != attachment.getInternalState().lodDistance) {
+            this.onModelChanged(model);
+            return;
+        }
+
         // Reload the configuration of just this one attachment
         attachment.getInternalState().onLoad(this.getClass(), newAttachmentType, config);
         attachment.onLoad(config);
@@ -0,0 +1,303 @@
+package com.bergerkiller.bukkit.tc.controller.components;
+
+import com.bergerkiller.bukkit.tc.controller.MinecartGroup;
+
+/**
+ * Keeps track of the time a single train spends in the different parts of its tick update.
+ * Unlike the global timings, this makes it possible to find out which train is responsible
+ * for a drop in server performance. A rolling history of the last {@link #HISTORY_SIZE}
+ * ticks is kept, from which averages, maxima and histograms are computed.<br>
+ * <br>
+ * All times are in nanoseconds. Sections can be nested: the {@link Section#PHYSICS}
+ * time includes the time spent refreshing the sign and rail trackers and computing the speed
+ * ahead. The total time of a tick is the physics time plus the network synchronization time.<br>
+ * <br>
+ * Besides time, the number of packets sent to players to synchronize the attachments
+ * of the train is tracked as well.
+ */
+public class PerformanceTracker {
+    /**
+     * Number of ticks of history kept
+     */
+    public static final int HISTORY_SIZE = 100;
+    /**
+     * Number of buckets of the histogram. Bucket 0 holds ticks that took less than 1 microsecond,
+     * bucket i holds ticks that took between 2^(i-1) and 2^i microseconds, and the last bucket
+     * holds all ticks that took longer than that.
+     */
+    public static final int HISTOGRAM_BUCKETS = 16;
+    private static final Section[] SECTIONS = Section.values();
+    private final MinecartGroup owner;
+    private final long[] current = new long[SECTIONS.length];
+    private final long[][] history = new long[SECTIONS.length][HISTORY_SIZE];
+    private final long[] totalHistory = new long[HISTORY_SIZE];
+    private final long[] packetHistory = new long[HISTORY_SIZE];
+    private long currentPackets = 0;
+    private int historyIndex = 0;
+    private int historyCount = 0;
+
+    public PerformanceTracker(MinecartGroup owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Gets the owner of this Performance Tracker
+     *
+     * @return the Owner
+     */
+    public MinecartGroup getOwner() {
+        return this.owner;
+    }
+
+    /**
+     * Starts measuring a section. The returned value must be passed to
+     * {@link #stop(Section, long)} once the section completes.
+     *
+     * @return start time
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Stops measuring a section, adding the time elapsed since start to the current tick
+     *
+     * @param section to add the time to
+     * @param startTime returned by {@link #start()}
+     */
+    public void stop(Section section, long startTime) {
+        this.current[section.ordinal()] += System.nanoTime() - startTime;
+    }
+
+    /**
+     * Adds to the number of packets sent to players during the current tick
+     *
+     * @param count of packets sent, all players combined
+     */
+    public void addPackets(int count) {
+        this.currentPackets += count;
+    }
+
+    /**
+     * Completes the current tick, storing the measured times in the history.
+     * Called once every server tick, after the train is synchronized to the players.
+     * Ticks in which no physics were performed are stored as well.
+     */
+    public void nextTick() {
+        long total = 0;
+        for (int i = 0; i < SECTIONS.length; i++) {
+            long time = this.current[i];
+            this.history[i][this.historyIndex] = time;
+            this.current[i] = 0;
+            if (SECTIONS[i].isTopLevel()) {
+                total += time;
+            }
+        }
+        this.totalHistory[this.historyIndex] = total;
+        this.packetHistory[this.historyIndex] = this.currentPackets;
+        this.currentPackets = 0;
+        if (++this.historyIndex == HISTORY_SIZE) {
+            this.historyIndex = 0;
+        }
+        if (this.historyCount < HISTORY_SIZE) {
+            this.historyCount++;
+        }
+    }
+
+    /**
+     * Gets the number of ticks currently stored in the history
+     *
+     * @return history tick count, at most {@link #HISTORY_SIZE}
+     */
+    public int getHistoryCount() {
+        return this.historyCount;
+    }
+
+    /**
+     * Gets the average time per tick spent in a section
+     *
+     * @param section
+     * @return average time in nanoseconds
+     */
+    public long getAverage(Section section) {
+        return average(this.history[section.ordinal()]);
+    }
+
+    /**
+     * Gets the average total time per tick spent updating this train
+     *
+     * @return average time in nanoseconds
+     */
+    public long getAverageTotal() {
+        return average(this.totalHistory);
+    }
+
+    /**
+     * Gets the maximum time spent in a section during a single tick
+     *
+     * @param section
+     * @return maximum time in nanoseconds
+     */
+    public long getMax(Section section) {
+        return max(this.history[section.ordinal()]);
+    }
+
+    /**
+     * Gets the maximum total time spent updating this train during a single tick
+     *
+     * @return maximum time in nanoseconds
+     */
+    public long getMaxTotal() {
+        return max(this.totalHistory);
+    }
+
+    /**
+     * Gets the average number of packets sent to players per tick
+     *
+     * @return average packet count, all players combined
+     */
+    public long getAveragePackets() {
+        return average(this.packetHistory);
+    }
+
+    /**
+     * Gets the maximum number of packets sent to players during a single tick
+     *
+     * @return maximum packet count, all players combined
+     */
+    public long getMaxPackets() {
+        return max(this.packetHistory);
+    }
+
+    /**
+     * Gets the time spent in a section for every tick stored in the history, oldest first
+     *
+     * @param section
+     * @return array of times in nanoseconds
+     */
+    public long[] getHistory(Section section) {
+        return ordered(this.history[section.ordinal()]);
+    }
+
+    /**
+     * Gets the total time spent updating this train for every tick stored in the history, oldest first
+     *
+     * @return array of times in nanoseconds
+     */
+    public long[] getTotalHistory() {
+        return ordered(this.totalHistory);
+    }
+
+    /**
+     * Gets a histogram of the times spent in a section during the ticks stored in the history.
+     * See {@link #HISTOGRAM_BUCKETS} for the ranges of the buckets.
+     *
+     * @param section
+     * @return histogram with {@link #HISTOGRAM_BUCKETS} tick counts
+     */
+    public int[] getHistogram(Section section) {
+        return histogram(this.history[section.ordinal()]);
+    }
+
+    /**
+     * Gets a histogram of the total times spent updating this train during the ticks stored in the history.
+     * See {@link #HISTOGRAM_BUCKETS} for the ranges of the buckets.
+     *
+     * @return histogram with {@link #HISTOGRAM_BUCKETS} tick counts
+     */
+    public int[] getTotalHistogram() {
+        return histogram(this.totalHistory);
+    }
+
+    /**
+     * Gets the lower bound of a histogram bucket
+     *
+     * @param bucket index
+     * @return lower bound time in nanoseconds
+     */
+    public static long getHistogramBucketStart(int bucket) {
+        return (bucket == 0) ? 0L : (1000L << (bucket - 1));
+    }
+
+    /**
+     * Clears all measured times
+     */
+    public void clear() {
+        for (int i = 0; i < SECTIONS.length; i++) {
+            this.current[i] = 0;
+        }
+        this.currentPackets = 0;
+        this.historyIndex = 0;
+        this.historyCount = 0;
+    }
+
+    private long average(long[] values) {
+        if (this.historyCount == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < this.historyCount; i++) {
+            total += values[i];
+        }
+        return total / this.historyCount;
+    }
+
+    private long max(long[] values) {
+        long max = 0;
+        for (int i = 0; i < this.historyCount; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    private long[] ordered(long[] values) {
+        long[] result = new long[this.historyCount];
+        int start = (this.historyCount < HISTORY_SIZE) ? 0 : this.historyIndex;
+        for (int i = 0; i < this.historyCount; i++) {
+            result[i] = values[(start + i) % HISTORY_SIZE];
+        }
+        return result;
+    }
+
+    private int[] histogram(long[] values) {
+        int[] buckets = new int[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < this.historyCount; i++) {
+            long micros = values[i] / 1000;
+            int bucket = (micros == 0) ? 0 : (64 - Long.numberOfLeadingZeros(micros));
+            buckets[Math.min(bucket, HISTOGRAM_BUCKETS - 1)]++;
+        }
+        return buckets;
+    }
+
+    /**
+     * A part of the tick update of a train that is measured
+     */
+    public static enum Section {
+        /** Total time spent performing physics, including the tracker refreshes and speed ahead */
+        PHYSICS(true),
+        /** Time spent checking for trains ahead for the wait distance property */
+        SPEED_AHEAD(false),
+        /** Time spent refreshing the signs and detector regions the train is on */
+        SIGN_TRACKER(false),
+        /** Time spent refreshing the rails the train is on */
+        RAIL_TRACKER(false),
+        /** Time spent updating attachments and synchronizing the train to players */
+        NETWORK(true);
+
+        private final boolean topLevel;
+
+        private Section(boolean topLevel) {
+            this.topLevel = topLevel;
+        }
+
+        /**
+         * Gets whether this section is not nested inside another section, and
+         * contributes to the total time
+         *
+         * @return True if top-level
+         */
+        public boolean isTopLevel() {
+            return this.topLevel;
+        }
+    }
+}
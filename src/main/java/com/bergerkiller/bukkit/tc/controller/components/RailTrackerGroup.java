@@ -115,6 +115,7 @@ public class RailTrackerGroup extends RailTracker {
      * Refreshes rail information, recalculating rail positions, directions and disconnect states
      */
     public void refresh() {
+        long startTime = this.owner.getPerformance().start();
         try (Timings t = TCTimings.RAILTRACKER_REFRESH.start()) {
             this.prevRails.clear();
             this.prevRails.addAll(this.rails);
@@ -227,6 +228,8 @@ public class RailTrackerGroup extends RailTracker {
                 RailMemberCache.addBlock(newRail.member, newRail.block);
             }
             */
+        } finally {
+            this.owner.getPerformance().stop(PerformanceTracker.Section.RAIL_TRACKER, startTime);
         }
     }
 
@@ -41,7 +41,7 @@ public class SignTrackerGroup extends SignTracker {
 
     @Override
     protected void onSignChange(TrackedSign sign, boolean active) {
-        SignActionEvent event = new SignActionEvent(sign.signBlock, sign.rail, owner);
+        SignActionEvent event = new SignActionEvent(sign, owner);
         event.setAction(active ? SignActionType.GROUP_ENTER : SignActionType.GROUP_LEAVE);
         SignAction.executeAll(event);
     }
@@ -143,6 +143,7 @@ public class SignTrackerGroup extends SignTracker {
      * Refreshes the block space and active signs if required
      */
     public void refresh() {
+        long startTime = owner.getPerformance().start();
         try (Timings t = TCTimings.SIGNTRACKER_REFRESH.start()) {
             // No need to update anything for empty trains
             if (owner.isEmpty()) {
@@ -275,6 +276,8 @@ public class SignTrackerGroup extends SignTracker {
                     }
                 }
             }
+        } finally {
+            owner.getPerformance().stop(PerformanceTracker.Section.SIGN_TRACKER, startTime);
         }
     }
 }
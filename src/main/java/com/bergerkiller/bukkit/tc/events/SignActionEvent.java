@@ -9,6 +9,7 @@ import com.bergerkiller.bukkit.tc.Direction;
 import com.bergerkiller.bukkit.tc.PowerState;
 import com.bergerkiller.bukkit.tc.SignActionHeader;
 import com.bergerkiller.bukkit.tc.Util;
+import com.bergerkiller.bukkit.tc.cache.RailPieceCache;
 import com.bergerkiller.bukkit.tc.cache.RailSignCache;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroup;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroupStore;
@@ -46,6 +47,7 @@ public class SignActionEvent extends Event implements Cancellable {
     private BlockFace facing;
     private final SignActionHeader header;
     private final Sign sign;
+    private final RailSignCache.TrackedSign trackedSign;
     private BlockFace[] watchedDirections;
     private RailPiece rail;
     private SignActionType actionType;
@@ -100,12 +102,20 @@ public class SignActionEvent extends Event implements Cancellable {
     }
 
     public SignActionEvent(RailSignCache.TrackedSign trackedSign) {
-        this(trackedSign.signBlock, trackedSign.sign, trackedSign.rail);
+        this.signblock = trackedSign.signBlock;
+        this.sign = trackedSign.sign;
+        this.trackedSign = trackedSign;
+        this.rail = trackedSign.rail;
+        this.actionType = SignActionType.NONE;
+        this.facing = null;
+        this.header = trackedSign.getHeader();
+        this.watchedDirections = (this.sign == null) ? FaceUtil.AXIS : null;
     }
 
     public SignActionEvent(final Block signblock, final Sign sign, RailPiece rail) {
         this.signblock = signblock;
         this.sign = sign;
+        this.trackedSign = null;
         this.rail = rail;
         this.actionType = SignActionType.NONE;
         this.facing = null;
@@ -449,6 +459,7 @@ public class SignActionEvent extends Event implements Cancellable {
         MinecartGroupStore.notifyPhysicsChange();
 
         Block railBlock = this.getRails();
+        RailPieceCache.notifyBlockChange(railBlock);
         RailType railType = RailType.getType(railBlock);
 
         // If from and to are the same, the train is launched back towards where it came
@@ -554,6 +565,16 @@ public class SignActionEvent extends Event implements Cancellable {
         return this.header;
     }
 
+    /**
+     * Gets the tracked sign this event was created for. Tracked signs store information
+     * about the sign, such as the sign actions matching it, for re-use by later events.
+     *
+     * @return tracked sign, or null if this event was not created for a tracked sign
+     */
+    public RailSignCache.TrackedSign getTrackedSign() {
+        return this.trackedSign;
+    }
+
     /**
      * Checks whether power reading is inverted for this Sign<br>
      * <br>
@@ -977,6 +998,9 @@ public class SignActionEvent extends Event implements Cancellable {
     public void setLine(int index, String line) {
         this.sign.setLine(index, line);
         this.sign.update(true);
+        if (this.trackedSign != null) {
+            this.trackedSign.invalidate();
+        }
     }
 
     /**
@@ -14,8 +14,6 @@ public class PathNode {
     private final Set<String> names = new HashSet<>();
     private final List<PathConnection> neighbors = new ArrayList<>(3);
     public int index;
-    private double lastDistance;
-    private PathConnection lastTaken;
     private boolean isRailSwitchable;
 
     protected PathNode(PathWorld world, BlockLocation location) {
@@ -86,31 +84,6 @@ public class PathNode {
         return TrainCarts.plugin.getPathProvider().getWorld(location.world).getOrCreateAtRail(location);
     }
 
-    private static double getDistanceTo(PathConnection from, PathConnection conn, double currentDistance, double maxDistance, PathNode destination) {
-        final PathNode node = conn.destination;
-        currentDistance += conn.distance;
-        // Consider taking turns as one distance longer
-        // This avoids the excessive use of turns in 2-way 'X' intersections
-        if (destination == node) {
-            return currentDistance;
-        }
-        // Initial distance check before continuing
-        if (node.lastDistance < currentDistance || currentDistance > maxDistance) {
-            return Integer.MAX_VALUE;
-        }
-        node.lastDistance = currentDistance;
-        // Check all neighbors and obtain the lowest distance recursively
-        double distance;
-        for (PathConnection connection : node.neighbors) {
-            distance = getDistanceTo(conn, connection, currentDistance, maxDistance, destination);
-            if (maxDistance > distance) {
-                maxDistance = distance;
-                node.lastTaken = connection;
-            }
-        }
-        return maxDistance;
-    }
-
     /**
      * Gets the world which this node is part of
      * 
@@ -138,25 +111,7 @@ public class PathNode {
      * @return A connection, or null if none could be found
      */
     public PathConnection findConnection(PathNode destination) {
-        for (PathNode node : world.getNodes()) {
-            node.lastDistance = Integer.MAX_VALUE;
-            node.lastTaken = null;
-        }
-        double minDistance = Integer.MAX_VALUE;
-        double distance;
-        final PathConnection from = new PathConnection(this, 0, "");
-        for (PathConnection connection : this.neighbors) {
-            distance = getDistanceTo(from, connection, 0.0, minDistance, destination);
-            if (minDistance > distance) {
-                minDistance = distance;
-                this.lastTaken = connection;
-            }
-        }
-        if (this.lastTaken == null) {
-            return null;
-        } else {
-            return new PathConnection(destination, minDistance, this.lastTaken.junctionName);
-        }
+        return world.getNextHop(this, destination);
     }
 
     /**
@@ -166,16 +121,11 @@ public class PathNode {
      * @return the route taken, or an empty array if none could be found
      */
     public PathConnection[] findRoute(PathNode destination) {
-        if (findConnection(destination) == null) {
-            return new PathConnection[0];
-        }
-        List<PathConnection> route = new ArrayList<>();
-        PathConnection conn = this.lastTaken;
-        while (conn != null) {
-            route.add(conn);
-            conn = conn.destination.lastTaken;
-        }
-        return route.toArray(new PathConnection[0]);
+        PathSearch search = PathSearch.cached();
+        search.search(this, destination);
+        PathConnection[] result = search.getRoute();
+        search.reset();
+        return result;
     }
 
     /**
@@ -205,15 +155,25 @@ public class PathNode {
         // Add a new one
         conn = new PathConnection(to, distance, junctionName);
         addNeighbourFast(conn);
+        world.invalidateRoutes(this);
+        world.invalidateRoutes(to);
         world.getProvider().markChanged();
         return conn;
     }
 
+    /**
+     * Adds a neighbour connection without checking for existing connections, and without
+     * discarding the routing tables of the world. Used when bulk-loading the nodes, after
+     * which all routing tables must be discarded.
+     *
+     * @param connection to add
+     */
     protected void addNeighbourFast(PathConnection connection) {
         this.neighbors.add(connection);
     }
 
     public void clear() {
+        world.invalidateRoutes(this);
         this.neighbors.clear();
         for (PathNode node : world.getNodes()) {
             Iterator<PathConnection> iter = node.neighbors.iterator();
@@ -369,6 +329,7 @@ public class PathNode {
         // Remove all the reachable nodes we have collected, deleting the entire network
         // Schedule all these nodes for path finding
         for (PathNode node : reachable) {
+            world.invalidateRoutes(node);
             node.neighbors.clear();
             world.removeFromMapping(node);
             world.getProvider().discoverFromRail(node.location);
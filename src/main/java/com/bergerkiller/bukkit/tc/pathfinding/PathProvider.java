@@ -5,6 +5,7 @@ import com.bergerkiller.bukkit.common.Task;
 import com.bergerkiller.bukkit.common.config.CompressedDataReader;
 import com.bergerkiller.bukkit.common.config.CompressedDataWriter;
 import com.bergerkiller.bukkit.common.utils.StringUtil;
+import com.bergerkiller.bukkit.tc.TCConfig;
 import com.bergerkiller.bukkit.tc.TrainCarts;
 import com.bergerkiller.bukkit.tc.cache.RailSignCache;
 import com.bergerkiller.bukkit.tc.cache.RailPieceCache;
@@ -38,7 +39,6 @@ import java.util.logging.Level;
 public class PathProvider extends Task {
     private static final String SWITCHER_NAME_FALLBACK = "::traincarts::switchable::";
     private static final int STEP_COUNT = 100; // Steps performed per timing check
-    private static final int MAX_PROCESSING_PER_TICK = 30; // Maximum processing time in Ms per tick
     public static boolean DEBUG_MODE = false;
     private final Map<String, PathWorld> worlds = new HashMap<String, PathWorld>();
     private Queue<BlockLocation> pendingDiscovery = new LinkedList<BlockLocation>();
@@ -86,6 +86,10 @@ public class PathProvider extends Task {
                         node.addNeighbourFast(new PathConnection(parr[stream.readInt()], stream));
                     }
                 }
+                // Connections were added without discarding routing tables
+                for (PathWorld world : getWorlds()) {
+                    world.invalidateAllRoutes();
+                }
             }
         }.read();
 
@@ -262,19 +266,35 @@ public class PathProvider extends Task {
 
     @Override
     public Task stop() {
-        addPendingNodes();
-        if (!this.pendingOperations.isEmpty()) {
-            TrainCarts.plugin.log(Level.INFO, "Performing " + this.pendingOperations.size() + " pending path finding operations (can take a while)...");
-            while (!this.pendingOperations.isEmpty()) {
-                PathFindOperation operation = this.pendingOperations.poll();
-                while (operation.next()) ;
+        RailPieceCache.beginTemporary();
+        try {
+            addPendingNodes();
+            if (!this.pendingOperations.isEmpty()) {
+                TrainCarts.plugin.log(Level.INFO, "Performing " + this.pendingOperations.size() + " pending path finding operations (can take a while)...");
+                while (!this.pendingOperations.isEmpty()) {
+                    PathFindOperation operation = this.pendingOperations.poll();
+                    while (operation.next()) ;
+                }
             }
+        } finally {
+            RailPieceCache.endTemporary();
         }
         return super.stop();
     }
 
     @Override
     public void run() {
+        // Rail information looked up while path finding is only stored temporarily
+        // This prevents polluting the cache used by trains with rails visited only once
+        RailPieceCache.beginTemporary();
+        try {
+            runPathFinding();
+        } finally {
+            RailPieceCache.endTemporary();
+        }
+    }
+
+    private void runPathFinding() {
         if (this.pendingOperations.isEmpty() && !this.pendingDiscovery.isEmpty()) {
             addNewlyDiscovered();
         }
@@ -287,6 +307,7 @@ public class PathProvider extends Task {
         int i;
         boolean done;
         final long startTime = System.currentTimeMillis();
+        final long maxProcessingTime = TCConfig.pathFindingMaxProcessingPerTick;
         while (!this.pendingOperations.isEmpty()) {
             PathFindOperation operation = this.pendingOperations.peek();
             done = false;
@@ -300,18 +321,13 @@ public class PathProvider extends Task {
                 for (i = 0; i < STEP_COUNT && !done; i++) {
                     done = operation.next();
                 }
-            } while (!done && (System.currentTimeMillis() - startTime) <= MAX_PROCESSING_PER_TICK);
+            } while (!done && (System.currentTimeMillis() - startTime) <= maxProcessingTime);
             if (done) {
                 this.pendingOperations.poll();
             } else {
                 break; // Ran out of time
             }
         }
-
-        // Important: wipe any rail and sign caches we have polluted with temporary block data
-        // This will momentarily cause the plugin to run slower, but we must do this or risk out of memory!
-        RailSignCache.reset();
-        RailPieceCache.reset();
     }
 
     // Discovers new switchers and destination signs. Stops upon the first new node found.
@@ -336,7 +352,8 @@ public class PathProvider extends Task {
             }
 
             // Discover signs, and process each
-            for (RailSignCache.TrackedSign trackedSign : RailSignCache.getSigns(railType, railBlock)) {
+            // Signs are not cached, as most of these rails are only visited once
+            for (RailSignCache.TrackedSign trackedSign : RailSignCache.discoverSigns(railType, railBlock)) {
                 SignActionEvent event = new SignActionEvent(trackedSign);
                 SignAction action = SignAction.getSignAction(event);
                 if (action == null) {
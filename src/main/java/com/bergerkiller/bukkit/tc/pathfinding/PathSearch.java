@@ -0,0 +1,193 @@
+package com.bergerkiller.bukkit.tc.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.bergerkiller.bukkit.common.BlockLocation;
+
+/**
+ * Performs a shortest-path search between two path nodes using the A* algorithm.
+ * The straight-line distance between node rail blocks is used as heuristic, which
+ * is never more than the distance of track that has to be walked between them.<br>
+ * <br>
+ * All state of the search is stored in this object, and not in the nodes themselves,
+ * which means multiple searches can be performed at the same time without corrupting
+ * one another. The same instance can be re-used for multiple searches to avoid
+ * re-allocating the internal buffers. An instance is not thread-safe.
+ */
+public class PathSearch {
+    private static final ThreadLocal<PathSearch> CACHED = ThreadLocal.withInitial(PathSearch::new);
+    private final Map<PathNode, Entry> entries = new IdentityHashMap<>();
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>();
+    private PathNode start = null;
+    private Entry found = null;
+
+    /**
+     * Gets a search instance cached for the current thread. The state of the
+     * search is reset the next time this method is called, so results should be
+     * read out before starting another search.
+     *
+     * @return cached search instance
+     */
+    public static PathSearch cached() {
+        return CACHED.get();
+    }
+
+    /**
+     * Searches the shortest route from one node to another. Any previous search state is discarded.
+     * When both nodes are the same, the shortest route that loops back to the node is searched.
+     *
+     * @param from node to start searching from
+     * @param destination node to find
+     * @return True if the destination could be reached, False if not
+     */
+    public boolean search(PathNode from, PathNode destination) {
+        this.reset();
+        this.start = from;
+        if (from == null || destination == null) {
+            return false;
+        }
+
+        // When searching a route back to the start node itself, the start is not registered as
+        // visited. Otherwise its distance of 0 would reject every route that loops back to it.
+        Entry startEntry = new Entry(from, null, null, 0.0, heuristic(from, destination));
+        if (from != destination) {
+            this.entries.put(from, startEntry);
+        }
+        this.heap.add(startEntry);
+
+        Entry current;
+        while ((current = this.heap.poll()) != null) {
+            // Skip stale heap entries for which a shorter path was found since
+            if (current.stale) {
+                continue;
+            }
+
+            // Reached destination. Only accepted once at least one connection was taken.
+            if (current.node == destination && current.connection != null) {
+                this.found = current;
+                break;
+            }
+
+            for (PathConnection connection : current.node.getNeighbours()) {
+                double distance = current.distance + connection.distance;
+                PathNode next = connection.destination;
+                Entry existing = this.entries.get(next);
+                if (existing != null) {
+                    if (existing.distance <= distance) {
+                        continue;
+                    }
+                    existing.stale = true;
+                }
+
+                Entry nextEntry = new Entry(next, current, connection, distance,
+                        distance + heuristic(next, destination));
+                this.entries.put(next, nextEntry);
+                this.heap.add(nextEntry);
+            }
+        }
+
+        this.heap.clear();
+        return this.found != null;
+    }
+
+    /**
+     * Gets whether the last search found the destination
+     *
+     * @return True if found
+     */
+    public boolean isFound() {
+        return this.found != null;
+    }
+
+    /**
+     * Gets the total distance of the route found during the last search
+     *
+     * @return distance, or {@link Double#MAX_VALUE} if no route was found
+     */
+    public double getDistance() {
+        return (this.found == null) ? Double.MAX_VALUE : this.found.distance;
+    }
+
+    /**
+     * Gets the connection that should be taken at the start node to reach the destination.
+     * The returned connection points to the destination node, has the total route distance
+     * and the junction name of the connection first taken from the start node.
+     *
+     * @return connection to the destination, or null if no route was found
+     */
+    public PathConnection getConnection() {
+        if (this.found == null) {
+            return null;
+        }
+        Entry first = this.found;
+        while (first.previous != null && first.previous.node != this.start) {
+            first = first.previous;
+        }
+        return new PathConnection(this.found.node, this.found.distance, first.connection.junctionName);
+    }
+
+    /**
+     * Gets all the connections taken to get from the start node to the destination node,
+     * in the order they are taken.
+     *
+     * @return route, or an empty array if no route was found
+     */
+    public PathConnection[] getRoute() {
+        if (this.found == null) {
+            return new PathConnection[0];
+        }
+        List<PathConnection> route = new ArrayList<>();
+        for (Entry e = this.found; e.connection != null; e = e.previous) {
+            route.add(e.connection);
+        }
+        Collections.reverse(route);
+        return route.toArray(new PathConnection[route.size()]);
+    }
+
+    /**
+     * Discards all state from the previous search
+     */
+    public void reset() {
+        this.entries.clear();
+        this.heap.clear();
+        this.start = null;
+        this.found = null;
+    }
+
+    private static double heuristic(PathNode node, PathNode destination) {
+        BlockLocation a = node.location;
+        BlockLocation b = destination.location;
+        double dx = a.x - b.x;
+        double dy = a.y - b.y;
+        double dz = a.z - b.z;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        public final PathNode node;
+        public final Entry previous;
+        public final PathConnection connection;
+        public final double distance;
+        public final double estimate;
+        public boolean stale;
+
+        public Entry(PathNode node, Entry previous, PathConnection connection, double distance, double estimate) {
+            this.node = node;
+            this.previous = previous;
+            this.connection = connection;
+            this.distance = distance;
+            this.estimate = estimate;
+            this.stale = false;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            return Double.compare(this.estimate, o.estimate);
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.bergerkiller.bukkit.tc.pathfinding;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import org.bukkit.block.Block;
@@ -18,12 +23,16 @@ public class PathWorld {
     private final String _name;
     private final BlockMap<PathNode> _blockNodes;
     private final Map<String, PathNode> _nodes;
+    private final Map<PathNode, Map<PathNode, PathConnection>> _routingTables;
+    private Map<PathNode, List<PathNode>> _incoming;
 
     public PathWorld(PathProvider provider, String worldName) {
         _provider = provider;
         _name = worldName;
         _blockNodes = new BlockMap<>();
         _nodes = new HashMap<>();
+        _routingTables = new IdentityHashMap<>();
+        _incoming = null;
     }
 
     /**
@@ -96,6 +105,7 @@ public class PathWorld {
     public void clearAll() {
         _nodes.clear();
         _blockNodes.clear();
+        invalidateAllRoutes();
         _provider.markChanged();
     }
 
@@ -137,4 +147,137 @@ public class PathWorld {
         }
         _provider.markChanged();
     }
+
+    /**
+     * Gets the next-hop connection that should be taken at a node to reach a destination node.
+     * The returned connection points to the destination, stores the total distance of the route
+     * and the junction name to take at the node. Routing tables are computed lazily once per
+     * destination and are kept until the graph changes in a way that affects them.
+     * When the node is the destination itself, the shortest route looping back to it is used.
+     *
+     * @param from node to find the next hop at
+     * @param destination node to reach
+     * @return next-hop connection, or null if the destination can not be reached from the node
+     */
+    public PathConnection getNextHop(PathNode from, PathNode destination) {
+        Map<PathNode, PathConnection> table = _routingTables.get(destination);
+        if (table == null) {
+            table = computeRoutingTable(destination);
+            _routingTables.put(destination, table);
+        }
+        return table.get(from);
+    }
+
+    /**
+     * Discards the routing tables that are affected when the connections of a node change.
+     * This is the case for the routing table of the node itself, and those of destinations
+     * this node could reach.
+     *
+     * @param node whose connections changed
+     */
+    protected void invalidateRoutes(PathNode node) {
+        _incoming = null;
+        Iterator<Map.Entry<PathNode, Map<PathNode, PathConnection>>> iter = _routingTables.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<PathNode, Map<PathNode, PathConnection>> entry = iter.next();
+            if (entry.getKey() == node || entry.getValue().containsKey(node)) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Discards all routing tables computed for this world
+     */
+    protected void invalidateAllRoutes() {
+        _incoming = null;
+        _routingTables.clear();
+    }
+
+    // Performs Dijkstra's algorithm from the destination, following connections in reverse
+    private Map<PathNode, PathConnection> computeRoutingTable(PathNode destination) {
+        Map<PathNode, List<PathNode>> incoming = getIncoming();
+        Map<PathNode, Double> distances = new IdentityHashMap<>();
+        Map<PathNode, PathConnection> nextHops = new IdentityHashMap<>();
+        PriorityQueue<RouteEntry> heap = new PriorityQueue<>();
+        PathConnection loopHop = null;
+        double loopDistance = Double.MAX_VALUE;
+        distances.put(destination, 0.0);
+        heap.add(new RouteEntry(destination, 0.0));
+
+        RouteEntry current;
+        while ((current = heap.poll()) != null) {
+            if (current.distance > distances.get(current.node)) {
+                continue; // stale
+            }
+
+            List<PathNode> sources = incoming.get(current.node);
+            if (sources == null) {
+                continue;
+            }
+            for (PathNode source : sources) {
+                for (PathConnection connection : source.getNeighbours()) {
+                    if (connection.destination != current.node) {
+                        continue;
+                    }
+                    double distance = current.distance + connection.distance;
+                    if (source == destination) {
+                        // Route looping back to the destination itself, is not expanded further
+                        if (distance < loopDistance) {
+                            loopDistance = distance;
+                            loopHop = connection;
+                        }
+                        continue;
+                    }
+                    Double previous = distances.get(source);
+                    if (previous == null || previous.doubleValue() > distance) {
+                        distances.put(source, distance);
+                        nextHops.put(source, connection);
+                        heap.add(new RouteEntry(source, distance));
+                    }
+                }
+            }
+        }
+
+        // Convert into connections to the destination with the total distance
+        Map<PathNode, PathConnection> table = new IdentityHashMap<>(nextHops.size());
+        for (Map.Entry<PathNode, PathConnection> entry : nextHops.entrySet()) {
+            double distance = distances.get(entry.getKey()).doubleValue();
+            table.put(entry.getKey(), new PathConnection(destination, distance, entry.getValue().junctionName));
+        }
+        if (loopHop != null) {
+            table.put(destination, new PathConnection(destination, loopDistance, loopHop.junctionName));
+        }
+        return table;
+    }
+
+    private Map<PathNode, List<PathNode>> getIncoming() {
+        if (_incoming == null) {
+            _incoming = new IdentityHashMap<>();
+            for (PathNode node : getNodes()) {
+                for (PathConnection connection : node.getNeighbours()) {
+                    List<PathNode> sources = _incoming.computeIfAbsent(connection.destination, n -> new ArrayList<>(2));
+                    if (!sources.contains(node)) {
+                        sources.add(node);
+                    }
+                }
+            }
+        }
+        return _incoming;
+    }
+
+    private static final class RouteEntry implements Comparable<RouteEntry> {
+        public final PathNode node;
+        public final double distance;
+
+        public RouteEntry(PathNode node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(RouteEntry o) {
+            return Double.compare(this.distance, o.distance);
+        }
+    }
 }
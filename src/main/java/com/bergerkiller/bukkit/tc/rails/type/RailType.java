@@ -30,7 +30,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,6 +47,8 @@ public abstract class RailType {
     public static final RailTypePowered BOOST = new RailTypePowered(true);
     public static final RailTypeNone NONE = new RailTypeNone();
     private static final List<RailType> values = new ArrayList<RailType>();
+    private static final Map<BlockData, RailType[]> typesByBlockData = new IdentityHashMap<BlockData, RailType[]>();
+    private static final RailType[] NO_TYPES = new RailType[0];
     private final boolean _isComplexRailBlock;
 
     static {
@@ -91,6 +95,7 @@ public abstract class RailType {
      */
     public static void unregister(RailType type) {
         if (values.remove(type)) {
+            typesByBlockData.clear();
             RailPieceCache.reset();
         }
     }
@@ -107,6 +112,7 @@ public abstract class RailType {
         } else {
             values.add(type);
         }
+        typesByBlockData.clear();
         RailPieceCache.reset();
     }
 
@@ -129,10 +135,9 @@ public abstract class RailType {
      */
     public static RailType getType(Block railsBlock) {
         if (railsBlock != null) {
-            BlockData railsBlockData = WorldUtil.getBlockData(railsBlock);
-            for (RailType type : values()) {
+            for (RailType type : getTypeCandidates(WorldUtil.getBlockData(railsBlock))) {
                 try {
-                    if (type.isComplexRailBlock() ? type.isRail(railsBlock) : type.isRail(railsBlockData)) {
+                    if (!type.isComplexRailBlock() || type.isRail(railsBlock)) {
                         return type;
                     }
                 } catch (Throwable t) {
@@ -144,6 +149,41 @@ public abstract class RailType {
         return NONE;
     }
 
+    /**
+     * Gets the rail types that could be used by a block with the block data specified,
+     * in the order they should be checked. The result is computed once per block data
+     * and cached until rail types are registered or unregistered. Only complex rail types
+     * have to be checked further, the last non-complex type (if any) always matches.
+     *
+     * @param blockData of the block
+     * @return candidate rail types
+     */
+    private static RailType[] getTypeCandidates(BlockData blockData) {
+        RailType[] candidates = typesByBlockData.get(blockData);
+        if (candidates == null) {
+            List<RailType> result = new ArrayList<RailType>(1);
+            for (RailType type : values) {
+                try {
+                    if (type.isComplexRailBlock()) {
+                        if (type.isRailCandidate(blockData)) {
+                            result.add(type);
+                        }
+                    } else if (type.isRail(blockData)) {
+                        result.add(type);
+                        break;
+                    }
+                } catch (Throwable t) {
+                    // Do not cache the result, as the rail type could have been unregistered
+                    handleCriticalError(type, t);
+                    return result.toArray(new RailType[result.size()]);
+                }
+            }
+            candidates = result.isEmpty() ? NO_TYPES : result.toArray(new RailType[result.size()]);
+            typesByBlockData.put(blockData, candidates);
+        }
+        return candidates;
+    }
+
     /**
      * Checks all registered rail types and attempts to load it into a {@link RailState} object. This provides
      * information such as rails block and rail type used. Some performance enhancements are used to make this
@@ -158,7 +198,11 @@ public abstract class RailType {
         state.initEnterDirection();
         state.position().assertAbsolute();
         RailPiece[] cachedPieces = RailPieceCache.find(state);
-        if (cachedPieces.length == 0) {
+        if (cachedPieces == RailPieceCache.NO_RAILS) {
+            // Cached that there are no rails here
+            state.setRailPiece(RailPiece.create(RailType.NONE, state.positionBlock()));
+            return false;
+        } else if (cachedPieces.length == 0) {
             // Standard lookup. Cache the result if we succeed.
             Block positionBlock = state.positionBlock();
             try (Timings tim = TCTimings.RAILTYPE_FINDRAILINFO.start()) {
@@ -179,10 +223,11 @@ public abstract class RailType {
                 }
             }
 
-            // Store in cache if we have results
+            // Store in cache, also when there are no rails so we don't look again next time
             if (cachedPieces.length > 0) {
                 RailPieceCache.storeInfo(positionBlock, cachedPieces);
             } else {
+                RailPieceCache.storeInfo(positionBlock, RailPieceCache.NO_RAILS);
                 state.setRailPiece(RailPiece.create(RailType.NONE, positionBlock));
                 return false;
             }
@@ -280,6 +325,20 @@ public abstract class RailType {
         return isRail(WorldUtil.getBlockData(world, x, y, z));
     }
 
+    /**
+     * Checks whether a Block with the block data given could be this type of Rail.
+     * This is only used for complex rail types (see {@link #isComplexRailBlock()}), which
+     * are only checked using {@link #isRail(world, x, y, z)} when this method returns True.
+     * The result is cached per block data, and so must only depend on the block data.
+     * By default returns True, which makes it check all blocks.
+     *
+     * @param blockData of the Block
+     * @return True if the block could be this type of Rail, False if it is never this Rail
+     */
+    public boolean isRailCandidate(BlockData blockData) {
+        return true;
+    }
+
     /**
      * Checks whether the Block face specified denote this type of Rail
      *
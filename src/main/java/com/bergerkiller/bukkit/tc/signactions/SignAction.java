@@ -7,6 +7,7 @@ import com.bergerkiller.bukkit.common.utils.CommonUtil;
 import com.bergerkiller.bukkit.common.utils.WorldUtil;
 import com.bergerkiller.bukkit.tc.TrainCarts;
 import com.bergerkiller.bukkit.tc.Util;
+import com.bergerkiller.bukkit.tc.cache.RailSignCache;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroup;
 import com.bergerkiller.bukkit.tc.controller.MinecartMember;
 import com.bergerkiller.bukkit.tc.controller.MinecartMemberStore;
@@ -27,47 +28,61 @@ import org.bukkit.event.block.SignChangeEvent;
 import static com.bergerkiller.bukkit.common.utils.MaterialUtil.getMaterial;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.logging.Level;
 
 public abstract class SignAction {
     private static final Material SIGN_POST_TYPE = getMaterial("LEGACY_SIGN_POST");
+    private static final SignAction[] NO_ACTIONS = new SignAction[0];
     private static List<SignAction> actions;
+    private static int actionsVersion = 0;
+    private static int indexVersion = -1;
+    private static Map<String, SignAction[]> actionsByKeyword = Collections.emptyMap();
+    private static SignAction[] customMatchActions = NO_ACTIONS;
+    private static int[] keywordLengths = new int[0];
 
     public static void init() {
         actions = new ArrayList<>();
-        register(new SignActionStation());
-        register(new SignActionLauncher());
-        register(new SignActionSwitcher());
+        actionsVersion++;
+        register(new SignActionStation(), "station");
+        register(new SignActionLauncher(), "launch");
+        register(new SignActionSwitcher(), "switcher", "tag");
         register(new SignActionSpawn());
-        register(new SignActionBlockChanger());
-        register(new SignActionProperties());
-        register(new SignActionTrigger());
+        register(new SignActionBlockChanger(), "blockchanger", "setblock", "changeblock");
+        register(new SignActionProperties(), "property");
+        register(new SignActionTrigger(), "trigger");
         register(new SignActionTeleport());
-        register(new SignActionJumper());
-        register(new SignActionEject());
-        register(new SignActionEnter());
-        register(new SignActionDestroy());
+        register(new SignActionJumper(), "jump");
+        register(new SignActionEject(), "eject");
+        register(new SignActionEnter(), "enter");
+        register(new SignActionDestroy(), "destroy");
         register(new SignActionTransfer());
-        register(new SignActionFuel());
-        register(new SignActionCraft());
-        register(SignActionDetector.INSTANCE);
-        register(new SignActionDestination());
-        register(new SignActionBlocker());
-        register(new SignActionWait());
-        register(new SignActionElevator());
-        register(new SignActionTicket());
-        register(new SignActionAnnounce());
-        register(new SignActionEffect());
-        register(new SignActionSound());
-        register(new SignActionSkip());
-        register(new SignActionMutex());
-        register(new SignActionFlip());
-        register(new SignActionAnimate());
+        register(new SignActionFuel(), "fuel");
+        register(new SignActionCraft(), "craft");
+        register(SignActionDetector.INSTANCE, "detect");
+        register(new SignActionDestination(), "destination");
+        register(new SignActionBlocker(), "blocker");
+        register(new SignActionWait(), "wait");
+        register(new SignActionElevator(), "elevator");
+        register(new SignActionTicket(), "ticket");
+        register(new SignActionAnnounce(), "announce");
+        register(new SignActionEffect(), "effect", "meffect", "peffect");
+        register(new SignActionSound(), "sound", "msound");
+        register(new SignActionSkip(), "skip");
+        register(new SignActionMutex(), "mutex");
+        register(new SignActionFlip(), "flip");
+        register(new SignActionAnimate(), "animate");
     }
 
     public static void deinit() {
         actions = null;
+        actionsVersion++;
     }
 
     /**
@@ -77,14 +92,126 @@ public abstract class SignAction {
      * @return sign action, or null if not found
      */
     public static SignAction getSignAction(SignActionEvent event) {
-        for (SignAction action : actions) {
-            if (action.match(event) && action.verify(event)) {
+        RailSignCache.TrackedSign trackedSign = event.getTrackedSign();
+        if (trackedSign == null) {
+            for (SignAction action : getCandidates(event)) {
+                if (action.match(event) && action.verify(event)) {
+                    return action;
+                }
+            }
+            return null;
+        }
+
+        // Tracked signs store the actions that can match the sign. Actions registered with type keywords
+        // only match the sign text, so these are only stored when they matched, and match() is called once.
+        // Other actions may match on more than the text, so match() is called for those every time.
+        // Verify depends on the action type of the event, so that is done every time.
+        SignAction[] matched = trackedSign.getActions(actionsVersion);
+        if (matched == null) {
+            matched = matchSignActions(event);
+            trackedSign.setActions(matched, actionsVersion);
+        }
+        for (SignAction action : matched) {
+            if ((action._typeKeywords != null || action.match(event)) && action.verify(event)) {
                 return action;
             }
         }
         return null;
     }
 
+    private static SignAction[] matchSignActions(SignActionEvent event) {
+        SignAction[] matched = NO_ACTIONS;
+        for (SignAction action : getCandidates(event)) {
+            if (action._typeKeywords == null || action.match(event)) {
+                matched = Arrays.copyOf(matched, matched.length + 1);
+                matched[matched.length - 1] = action;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Gets the sign actions that could match a sign, in the order they were registered.
+     * Actions registered with type keywords are only included when the second line of
+     * the sign starts with one of their keywords. Actions registered without keywords
+     * are always included.
+     *
+     * @param event to check
+     * @return candidate sign actions
+     */
+    private static SignAction[] getCandidates(SignActionEvent event) {
+        if (indexVersion != actionsVersion) {
+            rebuildIndex();
+        }
+        if (keywordLengths.length > 0) {
+            String line = event.getLine(1).toLowerCase(Locale.ENGLISH);
+            for (int length : keywordLengths) {
+                if (length <= line.length()) {
+                    SignAction[] candidates = actionsByKeyword.get(line.substring(0, length));
+                    if (candidates != null) {
+                        return candidates;
+                    }
+                }
+            }
+        }
+        return customMatchActions;
+    }
+
+    private static void rebuildIndex() {
+        indexVersion = actionsVersion;
+        if (actions == null) {
+            actionsByKeyword = Collections.emptyMap();
+            customMatchActions = NO_ACTIONS;
+            keywordLengths = new int[0];
+            return;
+        }
+
+        // Every keyword gets the actions declaring it or a shorter keyword it starts with,
+        // combined with all actions that need custom matching, in the order in which they
+        // were registered. This way checking the longest keyword the sign starts with
+        // gives the same result as checking all actions in order.
+        Map<String, List<SignAction>> lists = new HashMap<String, List<SignAction>>();
+        for (SignAction action : actions) {
+            if (action._typeKeywords != null) {
+                for (String keyword : action._typeKeywords) {
+                    lists.put(keyword, new ArrayList<SignAction>());
+                }
+            }
+        }
+        List<SignAction> custom = new ArrayList<SignAction>();
+        for (SignAction action : actions) {
+            if (action._typeKeywords == null) {
+                custom.add(action);
+                for (List<SignAction> list : lists.values()) {
+                    list.add(action);
+                }
+            } else {
+                for (String keyword : action._typeKeywords) {
+                    for (Map.Entry<String, List<SignAction>> entry : lists.entrySet()) {
+                        List<SignAction> list = entry.getValue();
+                        if (entry.getKey().startsWith(keyword) && (list.isEmpty() || list.get(list.size() - 1) != action)) {
+                            list.add(action);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Longest keywords are checked first
+        TreeSet<Integer> lengths = new TreeSet<Integer>(Collections.reverseOrder());
+        actionsByKeyword = new HashMap<String, SignAction[]>(lists.size());
+        for (Map.Entry<String, List<SignAction>> entry : lists.entrySet()) {
+            actionsByKeyword.put(entry.getKey(), entry.getValue().toArray(NO_ACTIONS));
+            lengths.add(entry.getKey().length());
+        }
+        keywordLengths = new int[lengths.size()];
+        int i = 0;
+        for (Integer length : lengths) {
+            keywordLengths[i++] = length.intValue();
+        }
+        customMatchActions = custom.toArray(NO_ACTIONS);
+    }
+
     /**
      * Registers a new SignAction, which will then be used by trains discovering signs matching
      * its format. Priority will be false, meaning it will not override previously registered
@@ -97,6 +224,26 @@ public abstract class SignAction {
         return register(action, false);
     }
 
+    /**
+     * Registers a new SignAction, which will then be used by trains discovering signs matching
+     * its format. Priority will be false, meaning it will not override previously registered
+     * sign actions.<br>
+     * <br>
+     * The type keywords are the texts the second line of the sign starts with for
+     * {@link #match(SignActionEvent)} to return true, like the types passed to
+     * {@link SignActionEvent#isType(String...)}. The action is then only checked for signs
+     * starting with one of these keywords, instead of for every sign. Actions registered
+     * with type keywords must only check the text on the sign in {@link #match(SignActionEvent)},
+     * because the result is remembered for signs that are tracked by trains.
+     * 
+     * @param action       The sign action instance that represents the sign
+     * @param typeKeywords The lower-case keywords the second line of a matching sign starts with
+     * @return input action
+     */
+    public static <T extends SignAction> T register(T action, String... typeKeywords) {
+        return register(action, false, typeKeywords);
+    }
+
     /**
      * Registers a new SignAction, which will then be used by trains discovering signs matching
      * its format.
@@ -106,12 +253,35 @@ public abstract class SignAction {
      * @return input action
      */
     public static <T extends SignAction> T register(T action, boolean priority) {
+        return register(action, priority, (String[]) null);
+    }
+
+    /**
+     * Registers a new SignAction, which will then be used by trains discovering signs matching
+     * its format. See {@link #register(SignAction, String...)} for the meaning of the type keywords.
+     * 
+     * @param action       The sign action instance that represents the sign
+     * @param priority     True to have this action override previously registered signs, False otherwise
+     * @param typeKeywords The lower-case keywords the second line of a matching sign starts with,
+     *                     null or empty if the action performs custom matching
+     * @return input action
+     */
+    public static <T extends SignAction> T register(T action, boolean priority, String... typeKeywords) {
+        if (typeKeywords == null || typeKeywords.length == 0) {
+            action._typeKeywords = null;
+        } else {
+            action._typeKeywords = new String[typeKeywords.length];
+            for (int i = 0; i < typeKeywords.length; i++) {
+                action._typeKeywords[i] = typeKeywords[i].toLowerCase(Locale.ENGLISH);
+            }
+        }
         if (actions != null) {
             if (priority) {
                 actions.add(0, action);
             } else {
                 actions.add(action);
             }
+            actionsVersion++;
         }
         return action;
     }
@@ -119,6 +289,7 @@ public abstract class SignAction {
     public static void unregister(SignAction action) {
         if (actions == null) return;
         actions.remove(action);
+        actionsVersion++;
     }
 
     /**
@@ -315,6 +486,7 @@ public abstract class SignAction {
     }
 
     private final boolean _hasLoadedChangeHandler;
+    private String[] _typeKeywords = null;
 
     public SignAction() {
         this._hasLoadedChangeHandler = CommonUtil.isMethodOverrided(SignAction.class, this.getClass(), "loadedChanged", SignActionEvent.class, boolean.class);
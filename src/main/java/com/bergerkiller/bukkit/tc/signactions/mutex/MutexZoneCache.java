@@ -1,23 +1,28 @@
 package com.bergerkiller.bukkit.tc.signactions.mutex;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import org.bukkit.Chunk;
+import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Sign;
 
 import com.bergerkiller.bukkit.common.bases.IntVector3;
 import com.bergerkiller.bukkit.common.collections.BlockMap;
+import com.bergerkiller.bukkit.common.utils.MathUtil;
 import com.bergerkiller.bukkit.common.utils.WorldUtil;
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
 import com.bergerkiller.bukkit.tc.events.SignActionEvent;
 
 public class MutexZoneCache {
+    private static final MutexZone[] NO_ZONES = new MutexZone[0];
     private static final BlockMap<MutexZone> zones = new BlockMap<MutexZone>();
+    private static final Map<UUID, LongHashMap<MutexZone[]>> zonesByChunk = new HashMap<>();
     private static final Map<String, MutexZoneSlot> slotsByName = new HashMap<>();
     private static final List<MutexZoneSlot> slotsList = new ArrayList<>();
 
@@ -35,22 +40,22 @@ public class MutexZoneCache {
     }
 
     public static void addMutexSign(SignActionEvent info) {
-        zones.put(info.getBlock(), MutexZone.fromSign(info));
+        MutexZone zone = MutexZone.fromSign(info);
+        MutexZone previous = zones.put(info.getBlock(), zone);
+        if (previous != null) {
+            removeFromChunks(previous);
+            removeMutexZone(previous);
+        }
+        addToChunks(zone);
     }
 
     public static void removeMutexSign(SignActionEvent info) {
-        // This causes pain & suffering (chunk unload event - accessing block data doesn't work)
-        // zones.remove(info.getWorld(), MutexZone.getPosition(info));
-
-        // Instead, a slow way
-        IntVector3 signPos = new IntVector3(info.getBlock());
-        Iterator<MutexZone> zones_iter = zones.values().iterator();
-        while (zones_iter.hasNext()) {
-            MutexZone zone = zones_iter.next();
-            if (zone.sign.equals(signPos)) {
-                zones_iter.remove();
-                removeMutexZone(zone);
-            }
+        // Note: can not use the center position of the zone here, because during
+        // chunk unloading accessing block data doesn't work. The sign block is the key.
+        MutexZone zone = zones.remove(info.getBlock());
+        if (zone != null) {
+            removeFromChunks(zone);
+            removeMutexZone(zone);
         }
     }
 
@@ -62,9 +67,38 @@ public class MutexZoneCache {
      * @return mutex zone, null if not found
      */
     public static MutexZone find(UUID world, IntVector3 block) {
-        for (MutexZone zone : zones.values()) {
-            if (zone.containsBlock(world, block)) {
-                return zone;
+        LongHashMap<MutexZone[]> chunks = zonesByChunk.get(world);
+        if (chunks != null) {
+            MutexZone[] chunkZones = chunks.get(MathUtil.longHashToLong(block.x >> 4, block.z >> 4));
+            if (chunkZones != null) {
+                for (MutexZone zone : chunkZones) {
+                    if (zone.containsBlock(world, block)) {
+                        return zone;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a mutex zone at a particular block. Unlike {@link #find(UUID, IntVector3)},
+     * this does not create any objects.
+     * 
+     * @param world
+     * @param block
+     * @return mutex zone, null if not found
+     */
+    public static MutexZone find(UUID world, Block block) {
+        LongHashMap<MutexZone[]> chunks = zonesByChunk.get(world);
+        if (chunks != null) {
+            MutexZone[] chunkZones = chunks.get(MathUtil.longHashToLong(block.getX() >> 4, block.getZ() >> 4));
+            if (chunkZones != null) {
+                for (MutexZone zone : chunkZones) {
+                    if (zone.containsBlock(block)) {
+                        return zone;
+                    }
+                }
             }
         }
         return null;
@@ -81,9 +115,24 @@ public class MutexZoneCache {
      * @return True if a mutex zone is nearby
      */
     public static boolean isMutexZoneNearby(UUID world, IntVector3 block, int radius) {
-        for (MutexZone zone : zones.values()) {
-            if (zone.isNearby(world, block, radius)) {
-                return true;
+        LongHashMap<MutexZone[]> chunks = zonesByChunk.get(world);
+        if (chunks == null) {
+            return false;
+        }
+        int cxMin = (block.x - radius) >> 4;
+        int czMin = (block.z - radius) >> 4;
+        int cxMax = (block.x + radius) >> 4;
+        int czMax = (block.z + radius) >> 4;
+        for (int cx = cxMin; cx <= cxMax; cx++) {
+            for (int cz = czMin; cz <= czMax; cz++) {
+                MutexZone[] chunkZones = chunks.get(MathUtil.longHashToLong(cx, cz));
+                if (chunkZones != null) {
+                    for (MutexZone zone : chunkZones) {
+                        if (zone.isNearby(world, block, radius)) {
+                            return true;
+                        }
+                    }
+                }
             }
         }
         return false;
@@ -99,14 +148,79 @@ public class MutexZoneCache {
      */
     public static List<MutexZone> findNearbyZones(UUID world, IntVector3 block, int radius) {
         List<MutexZone> result = new ArrayList<MutexZone>();
-        for (MutexZone zone : zones.values()) {
-            if (zone.isNearby(world, block, radius)) {
-                result.add(zone);
+        LongHashMap<MutexZone[]> chunks = zonesByChunk.get(world);
+        if (chunks == null) {
+            return result;
+        }
+        int cxMin = (block.x - radius) >> 4;
+        int czMin = (block.z - radius) >> 4;
+        int cxMax = (block.x + radius) >> 4;
+        int czMax = (block.z + radius) >> 4;
+        for (int cx = cxMin; cx <= cxMax; cx++) {
+            for (int cz = czMin; cz <= czMax; cz++) {
+                MutexZone[] chunkZones = chunks.get(MathUtil.longHashToLong(cx, cz));
+                if (chunkZones != null) {
+                    for (MutexZone zone : chunkZones) {
+                        if (zone.isNearby(world, block, radius) && !result.contains(zone)) {
+                            result.add(zone);
+                        }
+                    }
+                }
             }
         }
         return result;
     }
 
+    // Adds a zone to all the chunks its area overlaps
+    private static void addToChunks(MutexZone zone) {
+        LongHashMap<MutexZone[]> chunks = zonesByChunk.computeIfAbsent(zone.world, uuid -> new LongHashMap<MutexZone[]>());
+        for (int cx = zone.start.x >> 4; cx <= (zone.end.x >> 4); cx++) {
+            for (int cz = zone.start.z >> 4; cz <= (zone.end.z >> 4); cz++) {
+                long key = MathUtil.longHashToLong(cx, cz);
+                MutexZone[] chunkZones = chunks.get(key);
+                if (chunkZones == null) {
+                    chunkZones = NO_ZONES;
+                }
+                chunkZones = Arrays.copyOf(chunkZones, chunkZones.length + 1);
+                chunkZones[chunkZones.length - 1] = zone;
+                chunks.put(key, chunkZones);
+            }
+        }
+    }
+
+    // Removes a zone from all the chunks its area overlaps
+    private static void removeFromChunks(MutexZone zone) {
+        LongHashMap<MutexZone[]> chunks = zonesByChunk.get(zone.world);
+        if (chunks == null) {
+            return;
+        }
+        for (int cx = zone.start.x >> 4; cx <= (zone.end.x >> 4); cx++) {
+            for (int cz = zone.start.z >> 4; cz <= (zone.end.z >> 4); cz++) {
+                long key = MathUtil.longHashToLong(cx, cz);
+                MutexZone[] chunkZones = chunks.get(key);
+                if (chunkZones == null) {
+                    continue;
+                }
+                for (int i = 0; i < chunkZones.length; i++) {
+                    if (chunkZones[i] == zone) {
+                        if (chunkZones.length == 1) {
+                            chunks.remove(key);
+                        } else {
+                            MutexZone[] newZones = new MutexZone[chunkZones.length - 1];
+                            System.arraycopy(chunkZones, 0, newZones, 0, i);
+                            System.arraycopy(chunkZones, i + 1, newZones, i, newZones.length - i);
+                            chunks.put(key, newZones);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (chunks.size() == 0) {
+            zonesByChunk.remove(zone.world);
+        }
+    }
+
     /**
      * Finds or creates a new mutex zone slot by name for a certain zone
      * 
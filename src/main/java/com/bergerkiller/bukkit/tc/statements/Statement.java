@@ -6,10 +6,13 @@ import com.bergerkiller.bukkit.tc.controller.MinecartMember;
 import com.bergerkiller.bukkit.tc.events.SignActionEvent;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 public abstract class Statement {
+    private static final int MAX_CACHED_STATEMENTS = 2000;
     private static List<Statement> statements = new ArrayList<>();
+    private static final HashMap<String, ParsedStatement> parsedStatements = new HashMap<>();
 
     public static String[] parseArray(String text) {
         return text.split(";", -1);
@@ -39,13 +42,23 @@ public abstract class Statement {
 
     public static void deinit() {
         statements.clear();
+        parsedStatements.clear();
     }
 
     public static <T extends Statement> T register(T statement) {
         statements.add(statement);
+        parsedStatements.clear();
         return statement;
     }
 
+    /**
+     * Clears all statement texts that were parsed before.
+     * Must be called when the statement shortcuts change.
+     */
+    public static void clearCache() {
+        parsedStatements.clear();
+    }
+
     public static boolean has(MinecartMember<?> member, String text, SignActionEvent event) {
         return has(member, null, text, event);
     }
@@ -66,42 +79,15 @@ public abstract class Statement {
      * @return True if successful, False if not
      */
     public static boolean has(MinecartMember<?> member, MinecartGroup group, String text, SignActionEvent event) {
-        boolean inv = false;
-        text = TCConfig.statementShortcuts.replace(text);
-        while (text.startsWith("!")) {
-            text = text.substring(1);
-            inv = !inv;
-        }
-        if (text.isEmpty()) {
-            return inv;
-        }
-        String lowerText = text.toLowerCase();
-        int idx = lowerText.indexOf('@');
-        String arrayText = idx == -1 ? null : lowerText.substring(0, idx);
-        String[] array = idx == -1 ? null : parseArray(text.substring(idx + 1));
-        for (Statement statement : statements) {
-            if (event == null && statement.requiredEvent()) {
-                continue;
-            }
-            if (arrayText != null && statement.matchArray(arrayText)) {
-                if (member != null) {
-                    return statement.handleArray(member, array, event) != inv;
-                } else if (group != null) {
-                    return statement.handleArray(group, array, event) != inv;
-                } else if (!statement.requiresTrain()) {
-                    return statement.handleArray((MinecartMember<?>) null, array, event) != inv;
-                }
-            } else if (statement.match(lowerText)) {
-                if (member != null) {
-                    return statement.handle(member, text, event) != inv;
-                } else if (group != null) {
-                    return statement.handle(group, text, event) != inv;
-                } else if (!statement.requiresTrain()) {
-                    return statement.handle((MinecartMember<?>) null, text, event) != inv;
-                }
+        ParsedStatement parsed = parsedStatements.get(text);
+        if (parsed == null) {
+            if (parsedStatements.size() >= MAX_CACHED_STATEMENTS) {
+                parsedStatements.clear();
             }
+            parsed = new ParsedStatement(text);
+            parsedStatements.put(text, parsed);
         }
-        return inv;
+        return parsed.has(member, group, event);
     }
 
     public static boolean hasMultiple(MinecartMember<?> member, Iterable<String> statementTexts, SignActionEvent event) {
@@ -152,7 +138,10 @@ public abstract class Statement {
 
     /**
      * Checks if this statement matches the given text
-     * The given text is lower cased.
+     * The given text is lower cased.<br>
+     * <br>
+     * The result is remembered for the same statement text, so this method
+     * should only check the text.
      *
      * @param text to use
      * @return if it matches and can handle it
@@ -220,4 +209,82 @@ public abstract class Statement {
     public boolean handleArray(MinecartMember<?> member, String[] text, SignActionEvent event) {
         return false;
     }
+
+    /**
+     * A statement text with the shortcuts replaced, inversion and array parsed, and
+     * the statements that match it found. Evaluating it only has to pick the first
+     * matched statement that can be used, and call its handler.
+     */
+    private static final class ParsedStatement {
+        private final boolean inv;
+        private final String text;
+        private final String[] array;
+        private final Statement[] matched;
+        private final boolean[] matchedArray;
+
+        public ParsedStatement(String text) {
+            boolean inv = false;
+            text = TCConfig.statementShortcuts.replace(text);
+            while (text.startsWith("!")) {
+                text = text.substring(1);
+                inv = !inv;
+            }
+            this.inv = inv;
+            this.text = text;
+
+            List<Statement> matched = new ArrayList<Statement>();
+            List<Boolean> matchedArray = new ArrayList<Boolean>();
+            if (text.isEmpty()) {
+                this.array = null;
+            } else {
+                String lowerText = text.toLowerCase();
+                int idx = lowerText.indexOf('@');
+                String arrayText = idx == -1 ? null : lowerText.substring(0, idx);
+                this.array = idx == -1 ? null : parseArray(text.substring(idx + 1));
+                for (Statement statement : statements) {
+                    if (arrayText != null && statement.matchArray(arrayText)) {
+                        matched.add(statement);
+                        matchedArray.add(Boolean.TRUE);
+                    } else if (statement.match(lowerText)) {
+                        matched.add(statement);
+                        matchedArray.add(Boolean.FALSE);
+                    }
+                }
+            }
+            this.matched = matched.toArray(new Statement[matched.size()]);
+            this.matchedArray = new boolean[this.matched.length];
+            for (int i = 0; i < this.matchedArray.length; i++) {
+                this.matchedArray[i] = matchedArray.get(i).booleanValue();
+            }
+        }
+
+        public boolean has(MinecartMember<?> member, MinecartGroup group, SignActionEvent event) {
+            for (int i = 0; i < this.matched.length; i++) {
+                Statement statement = this.matched[i];
+                if (event == null && statement.requiredEvent()) {
+                    continue;
+                }
+                if (this.matchedArray[i]) {
+                    // Statements are allowed to modify the array, so pass a copy of the cached array
+                    String[] array = this.array.clone();
+                    if (member != null) {
+                        return statement.handleArray(member, array, event) != this.inv;
+                    } else if (group != null) {
+                        return statement.handleArray(group, array, event) != this.inv;
+                    } else if (!statement.requiresTrain()) {
+                        return statement.handleArray((MinecartMember<?>) null, array, event) != this.inv;
+                    }
+                } else {
+                    if (member != null) {
+                        return statement.handle(member, this.text, event) != this.inv;
+                    } else if (group != null) {
+                        return statement.handle(group, this.text, event) != this.inv;
+                    } else if (!statement.requiresTrain()) {
+                        return statement.handle((MinecartMember<?>) null, this.text, event) != this.inv;
+                    }
+                }
+            }
+            return this.inv;
+        }
+    }
 }
@@ -0,0 +1,251 @@
+package com.bergerkiller.bukkit.tc.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import com.bergerkiller.bukkit.common.utils.BlockUtil;
+import com.bergerkiller.bukkit.tc.cache.RailPieceCache;
+import com.bergerkiller.bukkit.tc.controller.components.RailPath;
+import com.bergerkiller.bukkit.tc.controller.components.RailState;
+import com.bergerkiller.bukkit.tc.rails.type.RailType;
+
+/**
+ * Caches the rails walked ahead of a position on the track, such as the front of a train.
+ * When the position moves forwards along the same track, the rails walked before are re-used
+ * and only new rails further ahead are walked. The walked rails are discarded and walked again
+ * when blocks change in one of the chunks the rails were walked through, or after a short interval
+ * in case rails changed without notice.<br>
+ * <br>
+ * Index 0 is the rail of the start position itself, with a distance of 0. The following indices
+ * are the rails ahead, positioned where the rail was entered, with the distance walked from
+ * the start position to get there.<br>
+ * <br>
+ * The walking point and the rail entries are re-used when walking again, so that once
+ * enough rails were walked, updating does not create new objects.
+ */
+public class TrackLookAhead {
+    /**
+     * Number of updates after which the rails are walked again, even when no changes are detected
+     */
+    public static final int REWALK_INTERVAL = 10;
+    private final Entry start = new Entry();
+    private final List<Entry> ahead = new ArrayList<Entry>();
+    private final List<Entry> unusedEntries = new ArrayList<Entry>();
+    private int[] chunks = new int[12]; // chunk x, z and change counter of every chunk walked through
+    private int chunkCount = 0;
+    private TrackWalkingPoint walker = null;
+    private boolean walkerEnded = false;
+    private boolean walkerInvalid = true;
+    private World world = null;
+    private int updates = 0;
+    private double offset = 0.0;
+
+    /**
+     * Moves the start of the look-ahead to a new position on the track. If the position
+     * is further along the rails already walked, the walked rails are kept.
+     *
+     * @param state of the new start position, is modified by this method
+     */
+    public void update(RailState state) {
+        RailPath.Position position = state.position();
+        Block railBlock = state.railBlock();
+        boolean derailed = (state.railType() == RailType.NONE);
+
+        // Check if we can continue walking from the previous position
+        boolean valid = !derailed && !this.walkerInvalid &&
+                        ++this.updates < REWALK_INTERVAL &&
+                        this.world == state.railWorld() &&
+                        !this.isChunkChanged();
+
+        // Find the rail we are on now in the rails walked before
+        // When still on the same rails as before, nothing ahead has to be removed
+        int index = -1;
+        if (valid && !this.start.isSameRail(railBlock, position)) {
+            index = 0;
+            while (index < this.ahead.size() && !this.ahead.get(index).isSameRail(railBlock, position)) {
+                index++;
+            }
+        }
+
+        // Store the new start position
+        this.start.set(railBlock, position, 0.0);
+
+        // Discard the rails that are now behind the start
+        if (index >= 0) {
+            if (index < this.ahead.size()) {
+                for (int i = 0; i <= index; i++) {
+                    this.unusedEntries.add(this.ahead.get(i));
+                }
+                this.ahead.subList(0, index + 1).clear();
+            } else {
+                valid = false;
+            }
+        }
+
+        // If there are rails walked ahead, compute the distance to the first one from our position
+        // using the path of the current rail. This is the distance we must move to reach it.
+        if (valid && !this.ahead.isEmpty()) {
+            double remaining = state.loadRailLogic().getPath().move(state, Double.MAX_VALUE);
+            this.offset = this.ahead.get(0).distance - remaining;
+            return;
+        }
+
+        // Walk all rails again, starting at the new position
+        this.clearAhead();
+        this.offset = 0.0;
+        this.updates = 0;
+        this.world = state.railWorld();
+        this.chunkCount = 0;
+        this.addChunk(railBlock);
+        this.walkerInvalid = derailed;
+        if (derailed) {
+            this.walkerEnded = true;
+        } else {
+            if (this.walker == null) {
+                this.walker = new TrackWalkingPoint(state);
+            } else {
+                this.walker.reset(state);
+            }
+            this.walker.skipFirst();
+            this.walkerEnded = false;
+        }
+    }
+
+    /**
+     * Gets rail information at an index, walking more rails ahead when needed.
+     * Index 0 is the rail of the start position.
+     *
+     * @param index of the rail
+     * @return rail entry, or null if no more rails exist ahead
+     */
+    public Entry get(int index) {
+        if (index == 0) {
+            return this.start;
+        }
+        index--;
+        while (index >= this.ahead.size()) {
+            if (this.walkerEnded || !this.walker.moveFull()) {
+                this.walkerEnded = true;
+                return null;
+            }
+            Entry entry = this.unusedEntries.isEmpty() ? new Entry() : this.unusedEntries.remove(this.unusedEntries.size() - 1);
+            entry.set(this.walker.state.railBlock(), this.walker.state.position(), this.walker.movedTotal);
+            this.ahead.add(entry);
+            this.addChunk(entry.railBlock);
+        }
+        return this.ahead.get(index);
+    }
+
+    /**
+     * Gets the distance from the start position to where a rail entry was entered
+     *
+     * @param entry
+     * @return distance
+     */
+    public double getDistance(Entry entry) {
+        return (entry == this.start) ? 0.0 : (entry.distance - this.offset);
+    }
+
+    /**
+     * Discards all walked rails
+     */
+    public void clear() {
+        this.clearAhead();
+        this.walkerInvalid = true;
+        this.world = null;
+    }
+
+    // Remembers the change counter of the chunk of a walked rail block, if not already remembered
+    private void addChunk(Block railBlock) {
+        int cx = railBlock.getX() >> 4;
+        int cz = railBlock.getZ() >> 4;
+        for (int i = this.chunkCount - 3; i >= 0; i -= 3) {
+            if (this.chunks[i] == cx && this.chunks[i + 1] == cz) {
+                return;
+            }
+        }
+        if (this.chunkCount == this.chunks.length) {
+            this.chunks = Arrays.copyOf(this.chunks, this.chunkCount * 2);
+        }
+        this.chunks[this.chunkCount++] = cx;
+        this.chunks[this.chunkCount++] = cz;
+        this.chunks[this.chunkCount++] = RailPieceCache.getChunkChangeCounter(this.world, cx, cz);
+    }
+
+    // Checks whether blocks changed in any of the chunks walked through
+    private boolean isChunkChanged() {
+        for (int i = 0; i < this.chunkCount; i += 3) {
+            if (this.chunks[i + 2] != RailPieceCache.getChunkChangeCounter(this.world, this.chunks[i], this.chunks[i + 1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void clearAhead() {
+        for (int i = 0; i < this.ahead.size(); i++) {
+            this.unusedEntries.add(this.ahead.get(i));
+        }
+        this.ahead.clear();
+    }
+
+    /**
+     * A single rail walked
+     */
+    public static final class Entry {
+        /** Rail block */
+        public Block railBlock;
+        /** Position where the rail was entered */
+        public double posX, posY, posZ;
+        /** Direction of motion where the rail was entered */
+        public double motX, motY, motZ;
+        private double distance;
+
+        private void set(Block railBlock, RailPath.Position position, double distance) {
+            this.railBlock = railBlock;
+            this.posX = position.posX;
+            this.posY = position.posY;
+            this.posZ = position.posZ;
+            this.motX = position.motX;
+            this.motY = position.motY;
+            this.motZ = position.motZ;
+            this.distance = distance;
+        }
+
+        private boolean isSameRail(Block railBlock, RailPath.Position position) {
+            return this.railBlock != null && BlockUtil.equals(this.railBlock, railBlock) &&
+                   (this.motX * position.motX + this.motY * position.motY + this.motZ * position.motZ) > 0.0;
+        }
+
+        /**
+         * Computes the dot product between the direction of motion and a vector
+         *
+         * @param x
+         * @param y
+         * @param z
+         * @return dot product
+         */
+        public double motDot(double x, double y, double z) {
+            return this.motX * x + this.motY * y + this.motZ * z;
+        }
+
+        /**
+         * Computes the distance between the position and a point
+         *
+         * @param x
+         * @param y
+         * @param z
+         * @return distance
+         */
+        public double distance(double x, double y, double z) {
+            double dx = x - this.posX;
+            double dy = y - this.posY;
+            double dz = z - this.posZ;
+            return Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+    }
+}
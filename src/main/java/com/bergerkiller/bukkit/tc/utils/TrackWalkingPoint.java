@@ -86,6 +86,33 @@ public class TrackWalkingPoint {
         }
     }
 
+    /**
+     * Resets this walking point to start walking from a new state, as if it was
+     * just constructed with {@link #TrackWalkingPoint(RailState)}. This allows re-using
+     * the same walking point, without creating new objects.
+     * 
+     * @param state to start walking from, is not modified by walking
+     */
+    public void reset(RailState state) {
+        state.position().assertAbsolute();
+        this.state.setTo(state);
+        this.currentRailLogic = this.state.loadRailLogic();
+        this.currentRailPath = this.currentRailLogic.getPath();
+        this.moved = 0.0;
+        this.movedTotal = 0.0;
+        this._stuckCtr = 0;
+        this.first = true;
+        if (this.lastLocation != null) {
+            this.lastLocation.setX(Double.NaN); // never equal to a position
+        }
+        if (this.loopFilter != null) {
+            this.loopFilter.clear();
+            if (!isDerailed()) {
+                this.loopFilter.add(this.state.railBlock());
+            }
+        }
+    }
+
     /**
      * Tells the walker to skip the very first starting point when running
      * {@link #move(double)} for the first time. This means the first position
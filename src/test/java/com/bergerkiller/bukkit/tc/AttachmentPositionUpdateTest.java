@@ -0,0 +1,151 @@
+package com.bergerkiller.bukkit.tc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.common.config.ConfigurationNode;
+import com.bergerkiller.bukkit.common.math.Matrix4x4;
+import com.bergerkiller.bukkit.tc.attachments.api.Attachment;
+import com.bergerkiller.bukkit.tc.attachments.api.AttachmentInternalState;
+import com.bergerkiller.bukkit.tc.attachments.api.AttachmentManager;
+import com.bergerkiller.bukkit.tc.attachments.api.AttachmentType;
+import com.bergerkiller.bukkit.tc.attachments.helper.HelperMethods;
+
+public class AttachmentPositionUpdateTest {
+
+    @Test
+    public void testReloadedPositionOfSkippedAttachment() {
+        TestAttachment root = new TestAttachment();
+        TestAttachment child = new TestAttachment();
+        root.addChild(child);
+        child.getInternalState().onLoad(AttachmentManager.class, TestAttachment.TYPE, createConfig(1.0));
+
+        // Train is standing still: the child is updated, then skipped because nothing changed
+        Matrix4x4 transform = new Matrix4x4();
+        transform.translate(10.0, 64.0, 20.0);
+        HelperMethods.updatePositions(root, transform);
+        assertEquals(1, child.transformUpdateCount);
+        for (int i = 0; i < 3; i++) {
+            HelperMethods.updatePositions(root, transform);
+        }
+        assertEquals(1, child.transformUpdateCount);
+        assertPosition(new Vector(11.0, 64.0, 20.0), child.getTransform());
+
+        // Change the position of the child, like the attachment editor does
+        child.getInternalState().onLoad(AttachmentManager.class, TestAttachment.TYPE, createConfig(2.5));
+        HelperMethods.updatePositions(root, transform);
+        assertEquals(2, child.transformUpdateCount);
+        assertPosition(new Vector(12.5, 64.0, 20.0), child.getTransform());
+        assertEquals(new Vector(12.5, 64.0, 20.0), child.lastTransformUpdate);
+
+        // The transform changed, so the child is updated once more to refresh its last transform
+        // After that, it is skipped again
+        HelperMethods.updatePositions(root, transform);
+        assertEquals(3, child.transformUpdateCount);
+        HelperMethods.updatePositions(root, transform);
+        HelperMethods.updatePositions(root, transform);
+        assertEquals(3, child.transformUpdateCount);
+
+        // Train moves: the child is updated every time
+        transform.translate(0.0, 0.0, 1.0);
+        HelperMethods.updatePositions(root, transform);
+        assertEquals(4, child.transformUpdateCount);
+        assertPosition(new Vector(12.5, 64.0, 21.0), child.getTransform());
+        transform.translate(0.0, 0.0, 1.0);
+        HelperMethods.updatePositions(root, transform);
+        assertEquals(5, child.transformUpdateCount);
+        assertPosition(new Vector(12.5, 64.0, 22.0), child.getTransform());
+    }
+
+    private static void assertPosition(Vector expected, Matrix4x4 transform) {
+        Vector actual = transform.toVector();
+        assertEquals(expected.getX(), actual.getX(), 1e-10);
+        assertEquals(expected.getY(), actual.getY(), 1e-10);
+        assertEquals(expected.getZ(), actual.getZ(), 1e-10);
+    }
+
+    private static ConfigurationNode createConfig(double posX) {
+        ConfigurationNode config = new ConfigurationNode();
+        config.set("position.posX", posX);
+        config.set("position.posY", 0.0);
+        config.set("position.posZ", 0.0);
+        config.set("position.rotX", 0.0);
+        config.set("position.rotY", 0.0);
+        config.set("position.rotZ", 0.0);
+        return config;
+    }
+
+    // Attachment that only counts and remembers the last position update, and allows them to be skipped
+    private static class TestAttachment implements Attachment {
+        public static final AttachmentType TYPE = new AttachmentType() {
+            @Override
+            public String getID() {
+                return "TEST";
+            }
+
+            @Override
+            public Attachment createController(ConfigurationNode config) {
+                return new TestAttachment();
+            }
+        };
+
+        private final AttachmentInternalState state = new AttachmentInternalState();
+        public Vector lastTransformUpdate = null;
+        public int transformUpdateCount = 0;
+
+        @Override
+        public AttachmentInternalState getInternalState() {
+            return this.state;
+        }
+
+        @Override
+        public void onAttached() {
+        }
+
+        @Override
+        public void onDetached() {
+        }
+
+        @Override
+        public void onLoad(ConfigurationNode config) {
+        }
+
+        @Override
+        public void onTick() {
+        }
+
+        @Override
+        public boolean isTransformUpdateSkippable() {
+            return true;
+        }
+
+        @Override
+        public void onTransformChanged(Matrix4x4 transform) {
+            this.lastTransformUpdate = transform.toVector();
+            this.transformUpdateCount++;
+        }
+
+        @Override
+        public void onMove(boolean absolute) {
+        }
+
+        @Override
+        public void makeVisible(Player viewer) {
+        }
+
+        @Override
+        public void makeHidden(Player viewer) {
+        }
+
+        @Override
+        public Collection<Player> getViewers() {
+            return Collections.emptyList();
+        }
+    }
+}
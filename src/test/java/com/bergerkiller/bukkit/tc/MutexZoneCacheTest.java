@@ -0,0 +1,35 @@
+package com.bergerkiller.bukkit.tc;
+
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+import org.bukkit.block.Block;
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.common.bases.IntVector3;
+import com.bergerkiller.bukkit.tc.signactions.mutex.MutexZoneCache;
+
+public class MutexZoneCacheTest {
+
+    @Test
+    public void testFindWithoutZones() {
+        UUID world = UUID.randomUUID();
+        Block block = createBlock(10, 64, 5);
+        assertNull(MutexZoneCache.find(world, block));
+        assertNull(MutexZoneCache.find(world, new IntVector3(block)));
+    }
+
+    private static Block createBlock(final int x, final int y, final int z) {
+        return (Block) Proxy.newProxyInstance(MutexZoneCacheTest.class.getClassLoader(), new Class<?>[] { Block.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getX": return x;
+                    case "getY": return y;
+                    case "getZ": return z;
+                    default: throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,115 @@
+package com.bergerkiller.bukkit.tc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.block.Sign;
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.common.utils.MathUtil;
+import com.bergerkiller.bukkit.tc.events.SignActionEvent;
+import com.bergerkiller.bukkit.tc.events.SignChangeActionEvent;
+import com.bergerkiller.bukkit.tc.signactions.SignAction;
+
+public class SignActionDispatchTest {
+    private static final int DUMMY_ACTION_COUNT = 120;
+
+    @Test
+    public void testKeywordDispatch() {
+        SignAction.init();
+        try {
+            // Register a lot of additional sign actions, like third-party plugins would
+            List<SignAction> dummyActions = new ArrayList<SignAction>();
+            for (int i = 0; i < DUMMY_ACTION_COUNT; i++) {
+                dummyActions.add(SignAction.register(new DummySignAction("dummy" + i + "x"), "dummy" + i + "x"));
+            }
+
+            // Sign matching the last registered action is the worst case for a linear scan
+            SignActionEvent[] events = new SignActionEvent[DUMMY_ACTION_COUNT];
+            for (int i = 0; i < events.length; i++) {
+                events[i] = new SignActionEvent(null, createSign("[train]", "dummy" + i + "x 5", "", ""), null);
+            }
+            SignActionEvent stationEvent = new SignActionEvent(null, createSign("[train]", "station", "", ""), null);
+
+            // Results must match what a linear scan finds
+            for (int i = 0; i < events.length; i++) {
+                assertSame(dummyActions.get(i), SignAction.getSignAction(events[i]));
+                assertSame(dummyActions.get(i), findLinear(dummyActions, events[i]));
+            }
+            assertEquals("SignActionStation", SignAction.getSignAction(stationEvent).getClass().getSimpleName());
+
+            // Measure
+            int bench_cnt = 2000;
+            long t1 = System.nanoTime();
+            for (int n = 0; n < bench_cnt; n++) {
+                for (SignActionEvent event : events) {
+                    findLinear(dummyActions, event);
+                }
+            }
+            long nanos_slow = System.nanoTime() - t1;
+
+            long t2 = System.nanoTime();
+            for (int n = 0; n < bench_cnt; n++) {
+                for (SignActionEvent event : events) {
+                    SignAction.getSignAction(event);
+                }
+            }
+            long nanos_fast = System.nanoTime() - t2;
+
+            System.out.println("Performance of SignAction.getSignAction with " + DUMMY_ACTION_COUNT + " extra actions:");
+            System.out.println("LINEAR=" + nanos_slow);
+            System.out.println("KEYWORD=" + nanos_fast + " (-" + MathUtil.round(100.0*(nanos_slow-nanos_fast)/nanos_slow, 2) + "%)");
+        } finally {
+            SignAction.deinit();
+        }
+    }
+
+    // How sign actions were found prior to keyword dispatch
+    private static SignAction findLinear(List<SignAction> actions, SignActionEvent event) {
+        for (SignAction action : actions) {
+            if (action.match(event) && action.verify(event)) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    private static Sign createSign(final String... lines) {
+        return (Sign) Proxy.newProxyInstance(SignActionDispatchTest.class.getClassLoader(), new Class<?>[] { Sign.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getLine")) {
+                        return lines[(Integer) args[0]];
+                    } else if (method.getName().equals("getLines")) {
+                        return lines.clone();
+                    } else {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class DummySignAction extends SignAction {
+        private final String type;
+
+        public DummySignAction(String type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean match(SignActionEvent info) {
+            return info.isType(this.type);
+        }
+
+        @Override
+        public void execute(SignActionEvent info) {
+        }
+
+        @Override
+        public boolean build(SignChangeActionEvent event) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.bergerkiller.bukkit.tc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.common.bases.IntVector3;
+import com.bergerkiller.bukkit.common.wrappers.BlockData;
+import com.bergerkiller.bukkit.tc.cache.RailPieceCache;
+import com.bergerkiller.bukkit.tc.controller.components.RailPiece;
+import com.bergerkiller.bukkit.tc.controller.components.RailState;
+import com.bergerkiller.bukkit.tc.rails.logic.RailLogic;
+import com.bergerkiller.bukkit.tc.rails.logic.RailLogicHorizontal;
+import com.bergerkiller.bukkit.tc.rails.type.RailType;
+import com.bergerkiller.bukkit.tc.signactions.mutex.MutexZoneCache;
+import com.bergerkiller.bukkit.tc.utils.TrackLookAhead;
+import com.bergerkiller.bukkit.tc.utils.TrackWalkingPoint;
+
+/**
+ * Tests re-using a walking point with {@link TrackWalkingPoint#reset(RailState)}, and
+ * the look-ahead of trains that re-uses it. A straight track of test rails along the z-axis
+ * is stored in the rail piece cache, so that walking it does not require a loaded world.
+ */
+public class TrackWalkingPointTest {
+    private static final int TRACK_X = 10;
+    private static final int TRACK_Y = 64;
+    private static final int TRACK_LENGTH = 20;
+    private static final TestRailType TYPE = new TestRailType();
+    // maximum bytes allowed to be allocated for all iterations together (measurement noise)
+    private static final long MAX_ALLOCATED_BYTES = 4096;
+    // maximum bytes allocated by a call with arguments to the test world or blocks (argument array and block key)
+    private static final long TEST_CALL_BYTES = 64;
+    private final Map<IntVector3, Block> blocks = new HashMap<IntVector3, Block>();
+    private final UUID worldUUID = UUID.randomUUID();
+    private World world;
+    private long testCallCount = 0;
+
+    @Before
+    public void createTrack() {
+        this.world = createWorld();
+        for (int z = 0; z < TRACK_LENGTH; z++) {
+            Block block = this.world.getBlockAt(TRACK_X, TRACK_Y, z);
+            RailPieceCache.storeInfo(block, new RailPiece[] { RailPiece.create(TYPE, block) });
+        }
+        RailPieceCache.storeInfo(this.world.getBlockAt(TRACK_X, TRACK_Y, -1), RailPieceCache.NO_RAILS);
+        RailPieceCache.storeInfo(this.world.getBlockAt(TRACK_X, TRACK_Y, TRACK_LENGTH), RailPieceCache.NO_RAILS);
+    }
+
+    @After
+    public void clearTrack() {
+        RailPieceCache.reset();
+    }
+
+    @Test
+    public void testResetWalksLikeNewWalker() {
+        RailState start = createState(2, 1.0);
+        TrackWalkingPoint expected = new TrackWalkingPoint(start);
+        assertTrue(expected.move(5.0));
+        assertTrue(expected.move(3.7));
+        assertEquals(2.5 + 5.0 + 3.7, expected.state.position().posZ, 1e-6);
+
+        // Walk somewhere else first, then reset to the same start
+        TrackWalkingPoint walker = new TrackWalkingPoint(createState(15, -1.0));
+        assertTrue(walker.move(6.0));
+        walker.reset(start);
+        assertTrue(walker.move(5.0));
+        assertTrue(walker.move(3.7));
+        assertWalkedSame(expected, walker);
+
+        // The start state must not have been modified by walking
+        assertEquals(2.5, start.position().posZ, 0.0);
+    }
+
+    @Test
+    public void testResetWithLoopFilter() {
+        RailState start = createState(2, 1.0);
+        TrackWalkingPoint expected = new TrackWalkingPoint(start);
+        expected.setLoopFilter(true);
+        assertTrue(expected.move(5.0));
+        assertTrue(expected.move(3.7));
+
+        // Walk to the end of the track, which visits all the rails the expected walker visited
+        TrackWalkingPoint walker = new TrackWalkingPoint(start);
+        walker.setLoopFilter(true);
+        while (walker.moveFull());
+        assertEquals(TRACK_LENGTH - 2.5, walker.movedTotal, 1e-3);
+
+        // After reset, the rails visited before must not stop the walker
+        walker.reset(start);
+        assertTrue(walker.move(5.0));
+        assertTrue(walker.move(3.7));
+        assertWalkedSame(expected, walker);
+    }
+
+    @Test
+    public void testResetSkipFirst() {
+        RailState start = createState(2, 1.0);
+        TrackWalkingPoint expected = new TrackWalkingPoint(start);
+        expected.skipFirst();
+        assertTrue(expected.moveFull());
+        assertTrue(expected.moveFull());
+
+        TrackWalkingPoint walker = new TrackWalkingPoint(start);
+        walker.skipFirst();
+        assertTrue(walker.moveFull());
+        walker.reset(start);
+        walker.skipFirst();
+        assertTrue(walker.moveFull());
+        assertTrue(walker.moveFull());
+        assertWalkedSame(expected, walker);
+    }
+
+    @Test
+    public void testLookAheadAllocations() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("Thread allocation measurement is not supported, skipping test");
+            return;
+        }
+        com.sun.management.ThreadMXBean allocBean = (com.sun.management.ThreadMXBean) bean;
+        if (!allocBean.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation measurement is not supported, skipping test");
+            return;
+        }
+        allocBean.setThreadAllocatedMemoryEnabled(true);
+
+        // The rail of every block of the track, to position the start on
+        RailPiece[] pieces = new RailPiece[TRACK_LENGTH];
+        for (int z = 0; z < TRACK_LENGTH; z++) {
+            pieces[z] = RailPiece.create(TYPE, this.world.getBlockAt(TRACK_X, TRACK_Y, z));
+        }
+
+        // Re-used look-ahead and state, like a train does every tick
+        TrackLookAhead lookAhead = new TrackLookAhead();
+        RailState state = new RailState();
+
+        // Warm up
+        for (int tick = 0; tick < 10000; tick++) {
+            lookAheadTick(lookAhead, state, pieces, tick);
+        }
+
+        // Run test
+        int iterations = 100000;
+        long threadId = Thread.currentThread().getId();
+        this.testCallCount = 0;
+        long bytes_before = allocBean.getThreadAllocatedBytes(threadId);
+        long time_a = System.nanoTime();
+        for (int tick = 0; tick < iterations; tick++) {
+            lookAheadTick(lookAhead, state, pieces, tick);
+        }
+        long time_b = System.nanoTime();
+        long bytes_allocated = allocBean.getThreadAllocatedBytes(threadId) - bytes_before;
+
+        // The proxies of the test world and blocks allocate on every call with arguments.
+        // Those bytes are not part of the look-ahead and are excluded.
+        long bytes_test = this.testCallCount * TEST_CALL_BYTES;
+        System.out.println("Look-ahead update x" + iterations + " took " + (time_b - time_a) + " ns");
+        System.out.println("Look-ahead update x" + iterations + " allocated " + bytes_allocated + " bytes, " +
+                "of which at most " + bytes_test + " bytes by the test blocks");
+
+        assertTrue("Look-ahead updates allocated " + bytes_allocated + " bytes",
+                bytes_allocated <= (bytes_test + MAX_ALLOCATED_BYTES));
+    }
+
+    // Moves the start of the look-ahead, and then finds the rails and mutex zones ahead like getSpeedAhead
+    private void lookAheadTick(TrackLookAhead lookAhead, RailState state, RailPiece[] pieces, int tick) {
+        // Moves from rail 2 to rail 10 and then starts over, so the end of the track is never walked
+        double posZ = 2.5 + 0.1 * (tick % 80);
+        state.setRailPiece(pieces[(int) posZ]);
+        state.position().relative = false;
+        state.position().posX = TRACK_X + 0.5;
+        state.position().posY = TRACK_Y + RailLogicHorizontal.Y_POS_OFFSET;
+        state.position().posZ = posZ;
+        state.position().motX = 0.0;
+        state.position().motY = 0.0;
+        state.position().motZ = 1.0;
+        state.initEnterDirection();
+        lookAhead.update(state);
+
+        TrackLookAhead.Entry rail;
+        double movedTotal = 0.0;
+        for (int railIndex = 0; movedTotal <= 5.0 && (rail = lookAhead.get(railIndex)) != null; railIndex++) {
+            movedTotal = lookAhead.getDistance(rail);
+            assertNull(MutexZoneCache.find(this.worldUUID, rail.railBlock));
+        }
+        assertTrue(movedTotal > 5.0);
+    }
+
+    private static void assertWalkedSame(TrackWalkingPoint expected, TrackWalkingPoint actual) {
+        assertEquals(expected.state.railBlock().getX(), actual.state.railBlock().getX());
+        assertEquals(expected.state.railBlock().getY(), actual.state.railBlock().getY());
+        assertEquals(expected.state.railBlock().getZ(), actual.state.railBlock().getZ());
+        assertEquals(expected.state.position().posX, actual.state.position().posX, 1e-10);
+        assertEquals(expected.state.position().posY, actual.state.position().posY, 1e-10);
+        assertEquals(expected.state.position().posZ, actual.state.position().posZ, 1e-10);
+        assertEquals(expected.state.position().motX, actual.state.position().motX, 1e-10);
+        assertEquals(expected.state.position().motY, actual.state.position().motY, 1e-10);
+        assertEquals(expected.state.position().motZ, actual.state.position().motZ, 1e-10);
+        assertEquals(expected.moved, actual.moved, 1e-10);
+        assertEquals(expected.movedTotal, actual.movedTotal, 1e-10);
+    }
+
+    private RailState createState(int z, double motZ) {
+        RailState state = new RailState();
+        state.setRailPiece(RailPiece.create(TYPE, this.world.getBlockAt(TRACK_X, TRACK_Y, z)));
+        state.position().relative = false;
+        state.position().posX = TRACK_X + 0.5;
+        state.position().posY = TRACK_Y + RailLogicHorizontal.Y_POS_OFFSET;
+        state.position().posZ = z + 0.5;
+        state.position().motX = 0.0;
+        state.position().motY = 0.0;
+        state.position().motZ = motZ;
+        state.initEnterDirection();
+        return state;
+    }
+
+    private World createWorld() {
+        return (World) Proxy.newProxyInstance(TrackWalkingPointTest.class.getClassLoader(), new Class<?>[] { World.class },
+                (proxy, method, args) -> {
+                    if (args != null) {
+                        this.testCallCount++;
+                    }
+                    switch (method.getName()) {
+                    case "getBlockAt":
+                        if (args.length == 3) {
+                            return getBlock((World) proxy, (Integer) args[0], (Integer) args[1], (Integer) args[2]);
+                        }
+                        break;
+                    case "getUID": return this.worldUUID;
+                    case "getName": return "test";
+                    case "equals": return proxy == args[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "toString": return "TestWorld";
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private Block getBlock(final World world, final int x, final int y, final int z) {
+        IntVector3 key = new IntVector3(x, y, z);
+        Block block = this.blocks.get(key);
+        if (block == null) {
+            block = (Block) Proxy.newProxyInstance(TrackWalkingPointTest.class.getClassLoader(), new Class<?>[] { Block.class },
+                    (proxy, method, args) -> {
+                        if (args != null) {
+                            this.testCallCount++;
+                        }
+                        switch (method.getName()) {
+                        case "getX": return x;
+                        case "getY": return y;
+                        case "getZ": return z;
+                        case "getWorld": return world;
+                        case "getRelative":
+                            if (args.length == 1 && args[0] instanceof BlockFace) {
+                                BlockFace face = (BlockFace) args[0];
+                                return getBlock(world, x + face.getModX(), y + face.getModY(), z + face.getModZ());
+                            }
+                            break;
+                        case "equals": return proxy == args[0];
+                        case "hashCode": return key.hashCode();
+                        case "toString": return "TestBlock{" + x + ", " + y + ", " + z + "}";
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+            this.blocks.put(key, block);
+        }
+        return block;
+    }
+
+    // Straight rails along the z-axis, only found through the rail piece cache
+    private static class TestRailType extends RailType {
+        @Override
+        public boolean isRail(BlockData blockData) {
+            return false;
+        }
+
+        @Override
+        public Block findMinecartPos(Block trackBlock) {
+            return trackBlock;
+        }
+
+        @Override
+        public BlockFace[] getPossibleDirections(Block trackBlock) {
+            return new BlockFace[] { BlockFace.NORTH, BlockFace.SOUTH };
+        }
+
+        @Override
+        public BlockFace getSignColumnDirection(Block railsBlock) {
+            return BlockFace.DOWN;
+        }
+
+        @Override
+        public Location getSpawnLocation(Block railsBlock, BlockFace orientation) {
+            return new Location(railsBlock.getWorld(), railsBlock.getX() + 0.5, railsBlock.getY() + RailLogicHorizontal.Y_POS_OFFSET, railsBlock.getZ() + 0.5);
+        }
+
+        @Override
+        public RailLogic getLogic(RailState state) {
+            return RailLogicHorizontal.get(BlockFace.SOUTH);
+        }
+    }
+}